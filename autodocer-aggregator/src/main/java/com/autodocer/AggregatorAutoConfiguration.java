@@ -2,16 +2,60 @@ package com.autodocer; // Ensure correct package
 
 import com.autodocer.Controller.AggregatorDataController;
 import com.autodocer.Controller.AggregatorUiController;
+import com.autodocer.Service.AggregatedSpecCache;
+import com.autodocer.Service.RegistryWatcher;
+import com.autodocer.Service.SpecFetcher;
+import com.autodocer.Service.SpecHttpClient;
+import com.autodocer.Service.SpecStore;
+import com.netflix.eureka.registry.InstanceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 @Configuration
 public class AggregatorAutoConfiguration {
 
     @Bean
-    public AggregatorDataController aggregatorDataController(RestTemplate restTemplate) {
-        return new AggregatorDataController(restTemplate);
+    public AggregatorDataController aggregatorDataController(
+            AggregatedSpecCache specCache, SpecHttpClient specHttpClient, SpecFetcher specFetcher,
+            @Value("${autodocer.aggregator.refresh.enabled:false}") boolean refreshEnabled // allow POST /autodocer-aggregator/refresh
+    ) {
+        return new AggregatorDataController(specCache, specHttpClient, specFetcher, refreshEnabled);
+    }
+
+    @Bean(destroyMethod = "close")
+    public AggregatedSpecCache aggregatedSpecCache(
+            InstanceRegistry instanceRegistry, SpecFetcher specFetcher, ObjectProvider<SpecStore> specStore,
+            @Value("${autodocer.aggregator.refresh-interval-ms:30000}") long refreshIntervalMs, // pause between background rounds
+            @Value("${autodocer.aggregator.deadline-ms:15000}") long deadlineMs, // first requests wait this long for the initial round
+            @Value("${autodocer.aggregator.store.registry-grace-ms:300000}") long registryGraceMs // services kept after leaving the registry, and stored ones while it fills up
+    ) {
+        return new AggregatedSpecCache(instanceRegistry, specFetcher, refreshIntervalMs, deadlineMs,
+                specStore.getIfAvailable(), registryGraceMs);
+    }
+
+    // Last-known-good specs on disk, served right after a restart and while a service is down
+    @Bean
+    @ConditionalOnProperty(name = "autodocer.aggregator.store.enabled", havingValue = "true", matchIfMissing = true)
+    public SpecStore specStore(
+            @Value("${autodocer.aggregator.store.file:.autodocer/aggregator-specs.log}") String file
+    ) {
+        return new SpecStore(Path.of(file));
+    }
+
+    @Bean(destroyMethod = "close")
+    public RegistryWatcher autodocerRegistryWatcher(
+            InstanceRegistry instanceRegistry, AggregatedSpecCache specCache,
+            @Value("${autodocer.aggregator.registry-poll-ms:1000}") long registryPollMs, // how often registry changes are looked for
+            @Value("${autodocer.aggregator.debounce-ms:10000}") long debounceMs, // quiet period before a changed service is refetched
+            @Value("${autodocer.aggregator.debounce-max-ms:60000}") long debounceMaxMs // longest a refetch waits for changes to settle
+    ) {
+        return new RegistryWatcher(instanceRegistry, specCache, registryPollMs, debounceMs, debounceMaxMs);
     }
 
     // Bean to create the controller that serves the UI HTML page (no change)
@@ -20,9 +64,28 @@ public class AggregatorAutoConfiguration {
         return new AggregatorUiController();
     }
 
-    // Bean for the RestTemplate (no change)
-    @Bean
-    public RestTemplate autodocerRestTemplate() {
-        return new RestTemplate();
+    @Bean(destroyMethod = "close")
+    public SpecFetcher autodocerSpecFetcher(
+            SpecHttpClient specHttpClient,
+            @Value("${autodocer.aggregator.max-concurrency:16}") int maxConcurrency, // outbound fetches in flight, across all requests
+            @Value("${autodocer.aggregator.deadline-ms:15000}") long deadlineMs, // overall budget of one aggregation
+            @Value("${autodocer.aggregator.hedge.percentile:95}") double hedgePercentile, // fetch time percentile after which a second replica is asked; 0 turns hedging off
+            @Value("${autodocer.aggregator.hedge.min-delay-ms:100}") long hedgeMinDelayMs // never hedge sooner than this
+    ) {
+        return new SpecFetcher(specHttpClient.getRestTemplate(), maxConcurrency, deadlineMs, hedgePercentile, hedgeMinDelayMs);
+    }
+
+    // Client for fetching docs; timeouts keep one hung service from holding a fetch thread
+    @Bean(destroyMethod = "close")
+    public SpecHttpClient specHttpClient(
+            @Value("${autodocer.aggregator.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${autodocer.aggregator.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${autodocer.aggregator.http.max-connections:64}") int maxConnections, // kept-alive connections across the fleet
+            @Value("${autodocer.aggregator.http.max-connections-per-host:4}") int maxConnectionsPerHost,
+            @Value("${autodocer.aggregator.http.idle-timeout-ms:60000}") long idleTimeoutMs, // unused connections are closed after this
+            @Value("${autodocer.aggregator.http.http2:false}") boolean http2 // JDK client negotiating HTTP/2, without pool statistics
+    ) {
+        return new SpecHttpClient(new SpecHttpClient.Settings(Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(readTimeoutMs), maxConnections, maxConnectionsPerHost, idleTimeoutMs, http2));
     }
-}
\ No newline at end of file
+}
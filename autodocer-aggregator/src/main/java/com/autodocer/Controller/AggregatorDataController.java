@@ -448,24 +448,21 @@
 
 package com.autodocer.Controller; // Ensure correct package
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.netflix.appinfo.InstanceInfo;
-import com.netflix.discovery.shared.Applications;
-import com.netflix.eureka.registry.InstanceRegistry;
+import com.autodocer.DTO.FetchLatencyStats;
+import com.autodocer.DTO.OutboundClientStats;
+import com.autodocer.DTO.ServiceCacheStatus;
+import com.autodocer.Service.AggregatedSpecCache;
+import com.autodocer.Service.SpecFetcher;
+import com.autodocer.Service.SpecHttpClient;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity; // Import ResponseEntity
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -474,143 +471,71 @@ public class AggregatorDataController {
 
     private static final Logger log = LoggerFactory.getLogger(AggregatorDataController.class);
 
-    @Autowired
-    private InstanceRegistry instanceRegistry;
-
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
-
-    public record AggregatedDefinitionsResult(JsonNode unifiedSpec, Map<String, JsonNode> individualSpecs) {}
-
-
-    public AggregatorDataController(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
-        this.objectMapper = new ObjectMapper();
+    private final AggregatedSpecCache specCache;
+    private final SpecHttpClient specHttpClient;
+    private final SpecFetcher specFetcher;
+    private final boolean refreshEnabled;
+
+    /**
+     * @param unifiedSpec    The unified document, written out as is; it is serialized once per change.
+     * @param missedDeadline Services that did not answer before the deadline in the last refresh.
+     * @param stale          Services served from their last good copy (e.g. kept on disk) that they have not confirmed.
+     * @param services       Age of each service's cached spec.
+     */
+    public record AggregatedDefinitionsResult(@JsonRawValue String unifiedSpec, Map<String, RawValue> individualSpecs,
+                                              List<String> missedDeadline, List<String> stale,
+                                              Map<String, ServiceCacheStatus> services) {}
+
+
+    public AggregatorDataController(AggregatedSpecCache specCache, SpecHttpClient specHttpClient, SpecFetcher specFetcher,
+                                    boolean refreshEnabled) {
+        this.specCache = specCache;
+        this.specHttpClient = specHttpClient;
+        this.specFetcher = specFetcher;
+        this.refreshEnabled = refreshEnabled;
     }
 
-    // UPDATED: Endpoint now returns the combined structure
+    /**
+     * Serves the unified and per-service specs from the background-refreshed
+     * cache; no service is called while answering.
+     */
     @GetMapping(value = "/autodocer-aggregator/definitions", produces = "application/json")
     public ResponseEntity<AggregatedDefinitionsResult> getAggregatedDefinitions() { // Return ResponseEntity
-        log.info("Fetching and merging API definitions...");
-
-        // --- Initialize Structures ---
-        ObjectNode mergedRoot = objectMapper.createObjectNode();
-        mergedRoot.put("openapi", "3.0.0");
-        ObjectNode infoNode = mergedRoot.putObject("info");
-        infoNode.put("title", "Aggregated API Documentation");
-        infoNode.put("version", "1.0.0");
-        infoNode.put("description", "Combined documentation from all registered services (generated by AutoDocER)");
-        ObjectNode mergedPathsNode = mergedRoot.putObject("paths");
-
-        Map<String, JsonNode> individualSpecs = new HashMap<>(); // Store individual parsed specs
-        // --- End Initialization ---
-
-
-        Applications applications = instanceRegistry.getApplications();
-        log.info("Found {} applications in the registry.", applications.getRegisteredApplications().size());
-
-        applications.getRegisteredApplications().forEach(app -> {
-            String serviceId = app.getName().toLowerCase();
-            log.debug("Processing application: {}", serviceId);
-
-            if ("eureka-server".equalsIgnoreCase(serviceId)) {
-                log.debug("Skipping eureka-server.");
-                return;
-            }
-
-            InstanceInfo instance = app.getInstancesAsIsFromEureka().stream()
-                    .filter(info -> info.getStatus() == InstanceInfo.InstanceStatus.UP)
-                    .findFirst()
-                    .orElse(null);
-
-            if (instance == null) {
-                log.warn("No UP instances found for service: {}", serviceId);
-                return;
-            }
-
-            // Construct Docs URL (Ensure /autodocer/api-docs matches your core library)
-            String serviceUrl = instance.getHomePageUrl();
-            if (serviceUrl == null || serviceUrl.isBlank()) {
-                serviceUrl = instance.getIPAddr() + ":" + instance.getPort();
-                if (!serviceUrl.startsWith("http")) {
-                    serviceUrl = (instance.isPortEnabled(InstanceInfo.PortType.SECURE) ? "https://" : "http://") + serviceUrl;
-                }
-            }
-            if (serviceUrl.endsWith("/")) {
-                serviceUrl = serviceUrl.substring(0, serviceUrl.length() -1);
-            }
-            String docsUrl = serviceUrl + "/autodocer/api-docs";
-
-            try {
-                log.info("Fetching docs for {} from {}", serviceId, docsUrl);
-                String openApiJsonString = restTemplate.getForObject(docsUrl, String.class);
-
-                if (openApiJsonString != null && !openApiJsonString.isBlank()) {
-                    JsonNode serviceRoot = objectMapper.readTree(openApiJsonString);
-
-                    // Store the individual parsed spec
-                    individualSpecs.put(serviceId, serviceRoot);
-
-                    // Merge paths into the main document
-                    JsonNode servicePaths = serviceRoot.path("paths");
-                    if (servicePaths.isObject()) {
-                        Iterator<Map.Entry<String, JsonNode>> pathIterator = servicePaths.fields();
-                        while (pathIterator.hasNext()) {
-                            Map.Entry<String, JsonNode> pathEntry = pathIterator.next();
-                            String originalPath = pathEntry.getKey();
-                            JsonNode pathItem = pathEntry.getValue();
-
-                            String mergedPath = "/" + serviceId + originalPath;
-                            mergedPath = mergedPath.replaceAll("/+", "/");
-
-                            ObjectNode mergedPathItemNode;
-                            if (mergedPathsNode.has(mergedPath)) {
-                                mergedPathItemNode = (ObjectNode) mergedPathsNode.get(mergedPath);
-                            } else {
-                                mergedPathItemNode = mergedPathsNode.putObject(mergedPath);
-                            }
-
-                            Iterator<Map.Entry<String, JsonNode>> operationIterator = pathItem.fields();
-                            while (operationIterator.hasNext()) {
-                                Map.Entry<String, JsonNode> opEntry = operationIterator.next();
-                                String httpMethod = opEntry.getKey();
-                                if (opEntry.getValue().isObject()) {
-                                    ObjectNode operationNode = (ObjectNode) opEntry.getValue().deepCopy();
+        AggregatedSpecCache.Definitions definitions = specCache.getDefinitions();
+        AggregatedDefinitionsResult result = new AggregatedDefinitionsResult(definitions.unifiedSpec(),
+                definitions.individualSpecs(), definitions.missedDeadline(), definitions.stale(), specCache.getStatus());
+        return ResponseEntity.ok(result); // Return the result object
+    }
 
-                                    if (operationNode.has("operationId")) {
-                                        String originalOpId = operationNode.path("operationId").asText("");
-                                        operationNode.put("operationId", serviceId + "_" + originalOpId);
-                                    } else {
-                                        String generatedOpId = serviceId + "_" + httpMethod + mergedPath.replaceAll("[^A-Za-z0-9_]", "_");
-                                        operationNode.put("operationId", generatedOpId);
-                                    }
-                                    operationNode.putArray("tags").removeAll().add(serviceId);
-                                    mergedPathItemNode.set(httpMethod, operationNode);
-                                }
-                            }
-                        }
-                    }
-                    log.info("Successfully processed docs for {}", serviceId);
-                } else {
-                    log.warn("Received empty response for docs from {}", serviceId);
-                    individualSpecs.put(serviceId, objectMapper.createObjectNode().put("error", "Received empty response"));
-                }
-            } catch (RestClientException e) {
-                log.error("Network error fetching docs for service {}: {}", serviceId, e.getMessage());
-                individualSpecs.put(serviceId, objectMapper.createObjectNode().put("error", "Network error: " + e.getMessage()));
-            } catch (JsonProcessingException e) {
-                log.error("JSON parsing error for service {}: {}", serviceId, e.getMessage());
-                individualSpecs.put(serviceId, objectMapper.createObjectNode().put("error", "JSON Parsing error: " + e.getMessage()));
-            } catch (Exception e) {
-                log.error("Error processing/merging docs for service {}: {}", serviceId, e.getMessage(), e);
-                individualSpecs.put(serviceId, objectMapper.createObjectNode().put("error", "Processing error: " + e.getMessage()));
-            }
-        });
+    /**
+     * Queues a round over every service instead of waiting for the next
+     * background one, and answers 202 with the status from before it. A round
+     * calls every service, and the endpoint is not authenticated, so it
+     * answers 404 unless autodocer.aggregator.refresh.enabled is set.
+     */
+    @PostMapping(value = "/autodocer-aggregator/refresh", produces = "application/json")
+    public ResponseEntity<Map<String, ServiceCacheStatus>> refresh() {
+        if (!refreshEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        log.info("Refresh of aggregated definitions requested, {}",
+                specCache.requestRefresh() ? "round queued" : "joining the round already due");
+        return ResponseEntity.accepted().body(specCache.getStatus());
+    }
 
-        log.info("Finished fetching definitions.");
+    /**
+     * Connection pool usage of the client that fetches service docs, in total and per host.
+     */
+    @GetMapping(value = "/autodocer-aggregator/client-stats", produces = "application/json")
+    public OutboundClientStats clientStats() {
+        return specHttpClient.getStats();
+    }
 
-        // Create the combined result object
-        AggregatedDefinitionsResult result = new AggregatedDefinitionsResult(mergedRoot, individualSpecs);
-        return ResponseEntity.ok(result); // Return the result object
+    /**
+     * Latency estimate of each instance, the current hedge delay and how often hedging paid off.
+     */
+    @GetMapping(value = "/autodocer-aggregator/latency-stats", produces = "application/json")
+    public FetchLatencyStats latencyStats() {
+        return specFetcher.getLatencyStats();
     }
-}
\ No newline at end of file
+}
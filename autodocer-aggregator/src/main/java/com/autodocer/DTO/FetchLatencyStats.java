@@ -0,0 +1,21 @@
+package com.autodocer.DTO;
+
+import java.util.Map;
+
+/**
+ * How fast the instances of the fleet serve their docs, and how often
+ * fetches were hedged.
+ */
+public record FetchLatencyStats(
+        long hedgeDelayMillis, // -1 while hedging is off or there are too few samples
+        long hedgedFetches, // fetches that also asked a second replica
+        long hedgeWins, // hedged fetches the second replica answered first
+        Map<String, Instance> instances // by docs URL
+) {
+
+    public record Instance(
+            long estimateMillis, // moving average of recent fetches, failures counted as a penalty
+            long fetches,
+            long failures
+    ) {}
+}
@@ -0,0 +1,20 @@
+package com.autodocer.DTO;
+
+import java.util.Map;
+
+/**
+ * Connection usage of the client that fetches service docs.
+ */
+public record OutboundClientStats(
+        String protocol, // "HTTP/1.1" (pooled) or "HTTP/2"
+        Pool total, // null when the client keeps no pool statistics
+        Map<String, Pool> perHost
+) {
+
+    public record Pool(
+            int leased, // connections in use by a fetch
+            int available, // idle keep-alive connections
+            int pending, // fetches waiting for a connection
+            int max
+    ) {}
+}
@@ -0,0 +1,17 @@
+package com.autodocer.DTO;
+
+import java.time.Instant;
+
+/**
+ * How fresh the aggregator's cached copy of one service's spec is.
+ */
+public record ServiceCacheStatus(
+        String docsUrl,
+        Instant fetchedAt, // when the cached spec was last downloaded, null if never
+        long ageMillis,
+        Instant checkedAt, // when the service was last asked, including 304 answers
+        String etag,
+        String specHash, // hash the service advertised in the registry when last checked, null if none
+        boolean stale, // served from the last good copy because the service has not confirmed it
+        String error // why the last check failed, null if it succeeded
+) {}
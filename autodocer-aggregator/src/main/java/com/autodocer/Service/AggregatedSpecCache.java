@@ -0,0 +1,1015 @@
+package com.autodocer.Service;
+
+import com.autodocer.DTO.ServiceCacheStatus;
+import com.autodocer.SpecHashPublisher;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.registry.InstanceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the last fetched spec of every registered service, and the unified
+ * document merged from them, so that the definitions endpoint is answered
+ * from memory without calling any service.
+ * <p>
+ * A scheduler re-checks all services in the background. Requests carry the
+ * ETag and Last-Modified of the cached copy, so an unchanged service answers
+ * 304 and costs neither a download nor a re-merge; the unified document is
+ * only touched when some service's spec actually changed. A service that
+ * fails to answer keeps its last good copy, with the error recorded in its
+ * status.
+ * <p>
+ * Services running autodocer-core as Eureka clients advertise the content
+ * hash of their document in their instance metadata. When all UP instances
+ * advertise the hash the cached copy was fetched under, the service is not
+ * contacted at all, so in steady state a round makes no outbound requests.
+ * Otherwise any of its instances may be asked; the fetcher prefers the
+ * fastest and hedges slow answers with a second replica.
+ * <p>
+ * The unified document is maintained incrementally: each service's paths
+ * (under /{serviceId}) and schemas are remembered, so
+ * a changed service has only its own entries removed and merged again, and
+ * only then is the document serialized anew. A redeploy in a large fleet
+ * costs one service's merge work, not the whole fleet's.
+ * <p>
+ * A service's document is kept as the JSON text it was served as, and is
+ * merged by streaming through it once with a parser: path keys, operation
+ * ids and tags are rewritten on the way, and each operation and schema is
+ * written straight out as a JSON fragment. No tree of the document is
+ * built; a service costs its text plus the fragments, and the unified
+ * document is written out from the fragments as they are. The text is
+ * still decoded from the fetched bytes and held as a String, so this saves
+ * the trees, not the copy of the body (see SpecMergeBenchmarkTest for how
+ * much peak heap that is).
+ * <p>
+ * Schemas are deduplicated across services by structure. While a schema is
+ * streamed, a hash of its content is computed that ignores member order;
+ * its key combines that with the hashes of every schema it refers to,
+ * directly or not. Schemas with the same name and key, such as a shared
+ * error envelope or paging wrapper, are kept and written once, under their
+ * plain name, and every operation refers to that one entry. A schema only
+ * one service has stays under "{serviceId}.{name}". References are left as
+ * holes in the fragments and filled in when the document is written, so a
+ * service starting or ceasing to share a schema never means rewriting
+ * another service's fragments.
+ * <p>
+ * With a {@link SpecStore}, every fetched spec is also kept on disk. After a
+ * restart the stored specs are served at once, marked stale until their
+ * service has been reached, and a service that cannot be reached keeps
+ * being served from its last good copy, also marked stale. This includes a
+ * service that is registered with no UP instance, or that has dropped out
+ * of the registry altogether, as its instances may be evicted mid-deploy;
+ * only once it has been absent for the registry grace period is it dropped.
+ */
+public class AggregatedSpecCache implements ApplicationListener<ContextRefreshedEvent>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AggregatedSpecCache.class);
+
+    private static final String SCHEMA_REF_PREFIX = "#/components/schemas/";
+    private static final Pattern REPEATED_SLASHES = Pattern.compile("/+");
+    private static final Pattern NON_IDENTIFIER = Pattern.compile("[^A-Za-z0-9_]");
+    // Marks the key of a referenced schema the service does not define; followed by its namespaced name
+    private static final String UNDEFINED_SCHEMA = "?";
+
+    /**
+     * The merged view handed to requests. Never modified once published.
+     * @param unifiedSpec     The unified document, already serialized to JSON.
+     * @param individualSpecs Each service's document as served (or its error), written out as is.
+     * @param stale           Services whose spec is a last-known-good copy not confirmed by the service.
+     */
+    public record Definitions(String unifiedSpec, Map<String, RawValue> individualSpecs, List<String> missedDeadline,
+                              List<String> stale) {}
+
+    // The cached state of one service; replaced, never modified. The spec is JSON text
+    private record Entry(String docsUrl, String spec, String etag, String lastModified, Instant fetchedAt,
+                         Instant checkedAt, String error, String specHash, boolean stale) {}
+
+    // A registered service with the docs URLs of its UP instances (maybe none); specHash is what they all advertise, null if nothing
+    private record Registered(String serviceId, List<String> docsUrls, String specHash) {}
+
+    // The merged paths and the structural keys of the schemas that came from one service
+    private record Contribution(List<String> paths, List<String> schemas) {}
+
+    // Serialized JSON with a hole between each two pieces of text, for a reference to the schema named in refs
+    private record Fragment(List<String> text, List<String> refs) {}
+
+    // One service's operations (by merged path, then method) and schemas, with the structural key of each schema name
+    private record Parsed(Map<String, Map<String, Fragment>> paths, Map<String, Fragment> schemas,
+                          Map<String, String> schemaKeys) {}
+
+    private record Operation(Fragment fragment, Map<String, String> schemaKeys) {}
+
+    // A schema of the unified document and the services that have it; services is only touched under refreshLock
+    private record MergedSchema(String name, Fragment fragment, Map<String, String> schemaKeys, Set<String> services) {}
+
+    private final InstanceRegistry instanceRegistry;
+    private final SpecFetcher specFetcher;
+    private final long refreshIntervalMillis;
+    private final long initialWaitMillis;
+    private final SpecStore store; // null when specs are not kept on disk
+    private final long registryGraceMillis;
+    private final long startedAt = System.nanoTime();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Object refreshLock = new Object();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // The unified document's parts, only touched under refreshLock; paths sorted so the output is stable
+    private final Map<String, Map<String, Operation>> mergedPaths = new TreeMap<>();
+    private final Map<String, MergedSchema> mergedSchemas = new HashMap<>(); // by structural key
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    // System.nanoTime() since which a cached service has not been in the registry, only touched under refreshLock
+    private final Map<String, Long> absentSince = new HashMap<>();
+    private final CountDownLatch firstRound = new CountDownLatch(1);
+    private final AtomicBoolean roundRequested = new AtomicBoolean(); // a requested round is queued and not yet started
+    private volatile Definitions definitions;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param refreshIntervalMillis Pause between the end of one background round and the start of the next.
+     * @param initialWaitMillis     How long the first requests wait for the initial round.
+     */
+    public AggregatedSpecCache(InstanceRegistry instanceRegistry, SpecFetcher specFetcher, long refreshIntervalMillis,
+                               long initialWaitMillis) {
+        this(instanceRegistry, specFetcher, refreshIntervalMillis, initialWaitMillis, null, 0);
+    }
+
+    /**
+     * @param store               Where fetched specs are kept across restarts; null to keep them in memory only.
+     * @param registryGraceMillis How long a service that is not in the registry is still served from its last
+     *                            good copy, counted from startup for a stored service, as the registry fills up.
+     */
+    public AggregatedSpecCache(InstanceRegistry instanceRegistry, SpecFetcher specFetcher, long refreshIntervalMillis,
+                               long initialWaitMillis, SpecStore store, long registryGraceMillis) {
+        this.instanceRegistry = instanceRegistry;
+        this.specFetcher = specFetcher;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.initialWaitMillis = initialWaitMillis;
+        this.store = store;
+        this.registryGraceMillis = registryGraceMillis;
+        synchronized (refreshLock) {
+            if (store != null) {
+                restore(store.load());
+            }
+            publish(true, List.of());
+        }
+        if (!entries.isEmpty()) {
+            // The stored view is worth serving; requests need not wait for the first round
+            firstRound.countDown();
+        }
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autodocer-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                // A failed round must not cancel the schedule
+                log.error("Background refresh of service docs failed: {}", e.getMessage(), e);
+            }
+        }, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Refreshing service docs in the background every {} ms", refreshIntervalMillis);
+    }
+
+    /**
+     * Returns the merged view. Only the requests that arrive before the
+     * initial round has finished wait for it, and at most initialWaitMillis.
+     */
+    public Definitions getDefinitions() {
+        if (firstRound.getCount() > 0) {
+            try {
+                firstRound.await(initialWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Reports the age of each service's cached copy, keyed by service id.
+     */
+    public Map<String, ServiceCacheStatus> getStatus() {
+        Instant now = Instant.now();
+        Map<String, ServiceCacheStatus> status = new TreeMap<>();
+        entries.forEach((serviceId, entry) -> status.put(serviceId, new ServiceCacheStatus(
+                entry.docsUrl(),
+                entry.fetchedAt(),
+                entry.fetchedAt() == null ? -1 : Duration.between(entry.fetchedAt(), now).toMillis(),
+                entry.checkedAt(),
+                entry.etag(),
+                entry.specHash(),
+                entry.stale(),
+                entry.error())));
+        return status;
+    }
+
+    /**
+     * Queues a round over every service on the background thread and returns
+     * without waiting for it. Requests made while one is still queued share it.
+     * @return Whether this call queued a round; false when one was already queued
+     * or the background thread has not started, which begins with a round anyway.
+     */
+    public synchronized boolean requestRefresh() {
+        if (scheduler == null || scheduler.isShutdown() || !roundRequested.compareAndSet(false, true)) {
+            return false;
+        }
+        scheduler.execute(() -> {
+            roundRequested.set(false);
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.error("Requested refresh of service docs failed: {}", e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Checks every registered service once and re-merges if anything changed.
+     */
+    public void refresh() {
+        refresh(null);
+    }
+
+    /**
+     * Checks only the given services, e.g. after the registry reported a
+     * change to their instances, and re-merges if any of them changed.
+     * @param serviceIds The services to check; null checks every registered service.
+     */
+    public void refresh(Set<String> serviceIds) {
+        synchronized (refreshLock) {
+            Map<String, String> docsUrls = new HashMap<>(); // of the first instance, for services no instance answered for
+            Map<String, String> specHashes = new HashMap<>();
+            List<SpecFetcher.Target> targets = new ArrayList<>();
+            int unchanged = 0;
+            Instant discoveredAt = Instant.now();
+            List<Registered> registered = discover(serviceIds);
+            for (Registered service : registered) {
+                String serviceId = service.serviceId();
+                absentSince.remove(serviceId);
+                Entry cached = entries.get(serviceId);
+                if (service.docsUrls().isEmpty()) {
+                    // Down or mid-deploy: keep serving what there is
+                    if (cached != null) {
+                        recordFailure(serviceId, cached.docsUrl(), "No UP instances in the registry", discoveredAt);
+                    }
+                    continue;
+                }
+                docsUrls.put(serviceId, service.docsUrls().get(0));
+                specHashes.put(serviceId, service.specHash());
+                if (cached == null || cached.spec() == null) {
+                    targets.add(new SpecFetcher.Target(serviceId, service.docsUrls(), null, null));
+                } else if (service.specHash() != null && service.specHash().equals(cached.specHash())) {
+                    // The registry vouches that the cached copy is the current document
+                    String docsUrl = service.docsUrls().contains(cached.docsUrl()) ? cached.docsUrl() : service.docsUrls().get(0);
+                    entries.put(serviceId, new Entry(docsUrl, cached.spec(), cached.etag(), cached.lastModified(),
+                            cached.fetchedAt(), discoveredAt, null, cached.specHash(), false));
+                    unchanged++;
+                } else {
+                    // Replicas serve the same document, so the validators hold whichever instance is asked
+                    targets.add(new SpecFetcher.Target(serviceId, service.docsUrls(), cached.etag(), cached.lastModified()));
+                }
+            }
+            if (unchanged > 0) {
+                log.info("Skipped {} services whose advertised spec hash is unchanged", unchanged);
+            }
+
+            SpecFetcher.Round round = targets.isEmpty()
+                    ? new SpecFetcher.Round(List.of(), List.of())
+                    : specFetcher.fetchAll(targets);
+            Instant now = Instant.now();
+            long mergeStart = System.nanoTime();
+            // Changed services with their parsed fragments; null for services that left
+            Map<String, Parsed> respecified = new LinkedHashMap<>();
+
+            for (SpecFetcher.Result fetched : round.results()) {
+                String serviceId = fetched.serviceId();
+                Entry cached = entries.get(serviceId);
+                String docsUrl = fetched.docsUrl();
+                // A fetched (or confirmed) copy is at least as new as the hash advertised before the fetch
+                String specHash = specHashes.get(serviceId);
+                if (fetched.notModified()) {
+                    // Validators are only sent for a cached spec, so there is one to keep
+                    entries.put(serviceId, new Entry(docsUrl, cached.spec(), cached.etag(), cached.lastModified(),
+                            cached.fetchedAt(), now, null, specHash, false));
+                } else if (fetched.error() != null) {
+                    recordFailure(serviceId, docsUrl, fetched.error(), now);
+                } else {
+                    Parsed parsed;
+                    try {
+                        parsed = parseService(serviceId, fetched.spec());
+                    } catch (IOException e) {
+                        log.error("JSON parsing error for service {}: {}", serviceId, e.getMessage());
+                        recordFailure(serviceId, docsUrl, "JSON Parsing error: " + e.getMessage(), now);
+                        continue;
+                    }
+                    entries.put(serviceId, new Entry(docsUrl, fetched.spec(), fetched.etag(), fetched.lastModified(),
+                            now, now, null, specHash, false));
+                    respecified.put(serviceId, parsed);
+                    if (store != null) {
+                        store.put(new SpecStore.StoredSpec(serviceId, docsUrl, fetched.spec(), fetched.etag(),
+                                fetched.lastModified(), specHash, now));
+                    }
+                }
+            }
+            for (String serviceId : round.missedDeadline()) {
+                recordFailure(serviceId, docsUrls.get(serviceId), "Deadline exceeded: no response in time", now);
+            }
+            // Services that left the registry, for good once they have been gone for the grace period
+            Set<String> present = new HashSet<>();
+            registered.forEach(service -> present.add(service.serviceId()));
+            long nowNanos = System.nanoTime();
+            for (Map.Entry<String, Entry> cached : List.copyOf(entries.entrySet())) {
+                String serviceId = cached.getKey();
+                if ((serviceIds != null && !serviceIds.contains(serviceId)) || present.contains(serviceId)) {
+                    continue;
+                }
+                long goneMillis = (nowNanos - absentSince.computeIfAbsent(serviceId, id -> nowNanos)) / 1_000_000;
+                if (cached.getValue().spec() != null && goneMillis < registryGraceMillis) {
+                    recordFailure(serviceId, cached.getValue().docsUrl(), "Not in the registry", now);
+                    continue;
+                }
+                absentSince.remove(serviceId);
+                entries.remove(serviceId);
+                respecified.put(serviceId, null);
+                if (store != null) {
+                    store.remove(serviceId);
+                }
+            }
+
+            List<String> missedDeadline = round.missedDeadline();
+            if (serviceIds != null) {
+                // Services outside a targeted round keep their standing from the last full one
+                missedDeadline = new ArrayList<>(definitions.missedDeadline());
+                missedDeadline.removeAll(serviceIds);
+                missedDeadline.addAll(round.missedDeadline());
+            }
+
+            if (!respecified.isEmpty()) {
+                respecified.forEach(this::remerge);
+                publish(true, missedDeadline);
+                log.info("Unified spec updated for {} changed services ({} cached, {} schemas shared) in {} ms",
+                        respecified.size(), entries.size(),
+                        mergedSchemas.values().stream().filter(schema -> schema.services().size() > 1).count(),
+                        (System.nanoTime() - mergeStart) / 1_000_000);
+            } else {
+                // Errors, stale marks and missed deadlines may have changed; the document has not
+                publish(false, missedDeadline);
+            }
+            if (store != null) {
+                store.compactIfNeeded();
+            }
+            if (serviceIds == null) {
+                firstRound.countDown();
+            }
+        }
+    }
+
+    /**
+     * Keeps the last good spec of a failing service, marked stale.
+     */
+    private void recordFailure(String serviceId, String docsUrl, String error, Instant now) {
+        Entry cached = entries.get(serviceId);
+        if (cached != null && cached.spec() != null) {
+            entries.put(serviceId, new Entry(docsUrl, cached.spec(), cached.etag(), cached.lastModified(),
+                    cached.fetchedAt(), now, error, cached.specHash(), true));
+            return;
+        }
+        entries.put(serviceId, new Entry(docsUrl, null, null, null, null, now, error, null, false));
+    }
+
+    /**
+     * Puts the specs kept on disk in place, stale until their services answer.
+     * Must be called while holding refreshLock.
+     */
+    private void restore(Map<String, SpecStore.StoredSpec> stored) {
+        for (SpecStore.StoredSpec spec : stored.values()) {
+            Parsed parsed;
+            try {
+                parsed = parseService(spec.serviceId(), spec.spec());
+            } catch (IOException e) {
+                log.warn("Dropping unreadable stored spec of {}: {}", spec.serviceId(), e.getMessage());
+                store.remove(spec.serviceId());
+                continue;
+            }
+            entries.put(spec.serviceId(), new Entry(spec.docsUrl(), spec.spec(), spec.etag(), spec.lastModified(),
+                    spec.fetchedAt(), null, null, spec.specHash(), true));
+            // Its instances may not have registered again yet
+            absentSince.put(spec.serviceId(), startedAt);
+            remerge(spec.serviceId(), parsed);
+        }
+    }
+
+    /**
+     * Lists the UP instances of every registered application (or only of the
+     * given ones), with the spec hash they advertise. An application without
+     * UP instances is listed with none.
+     */
+    private List<Registered> discover(Set<String> serviceIds) {
+        Applications applications = instanceRegistry.getApplications();
+        log.info("Found {} applications in the registry.", applications.getRegisteredApplications().size());
+
+        List<Registered> registered = new ArrayList<>();
+        applications.getRegisteredApplications().forEach(app -> {
+            String serviceId = app.getName().toLowerCase();
+            if (serviceIds != null && !serviceIds.contains(serviceId)) {
+                return;
+            }
+            log.debug("Processing application: {}", serviceId);
+
+            if ("eureka-server".equalsIgnoreCase(serviceId)) {
+                log.debug("Skipping eureka-server.");
+                return;
+            }
+
+            List<InstanceInfo> instances = app.getInstancesAsIsFromEureka().stream()
+                    .filter(info -> info.getStatus() == InstanceInfo.InstanceStatus.UP)
+                    .toList();
+
+            if (instances.isEmpty()) {
+                log.warn("No UP instances found for service: {}", serviceId);
+                registered.add(new Registered(serviceId, List.of(), null));
+                return;
+            }
+
+            // The fetcher picks among them by latency
+            List<String> docsUrls = instances.stream().map(AggregatedSpecCache::docsUrl).distinct().toList();
+            // Mid-deploy the replicas may serve different documents; then the hash vouches for none of them
+            Set<String> specHashes = new HashSet<>();
+            instances.forEach(instance -> specHashes.add(instance.getMetadata().get(SpecHashPublisher.METADATA_KEY)));
+            String specHash = specHashes.size() == 1 ? specHashes.iterator().next() : null;
+            registered.add(new Registered(serviceId, docsUrls, specHash));
+        });
+        return registered;
+    }
+
+    private static String docsUrl(InstanceInfo instance) {
+        // Construct Docs URL (Ensure /autodocer/api-docs matches your core library)
+        String serviceUrl = instance.getHomePageUrl();
+        if (serviceUrl == null || serviceUrl.isBlank()) {
+            serviceUrl = instance.getIPAddr() + ":" + instance.getPort();
+            if (!serviceUrl.startsWith("http")) {
+                serviceUrl = (instance.isPortEnabled(InstanceInfo.PortType.SECURE) ? "https://" : "http://") + serviceUrl;
+            }
+        }
+        if (serviceUrl.endsWith("/")) {
+            serviceUrl = serviceUrl.substring(0, serviceUrl.length() -1);
+        }
+        return serviceUrl + "/autodocer/api-docs";
+    }
+
+    /**
+     * Replaces a service's paths and schemas in the unified document.
+     * @param parsed The service's new fragments, or null to only remove the old contribution.
+     */
+    private void remerge(String serviceId, Parsed parsed) {
+        Contribution previous = contributions.remove(serviceId);
+        if (previous != null) {
+            // One by one: keySet().removeAll(list) scans the list for every key when it is as long as the map
+            previous.paths().forEach(mergedPaths::remove);
+            for (String key : previous.schemas()) {
+                MergedSchema schema = mergedSchemas.get(key);
+                schema.services().remove(serviceId);
+                if (schema.services().isEmpty()) {
+                    mergedSchemas.remove(key);
+                }
+            }
+        }
+        if (parsed == null) {
+            return;
+        }
+        List<String> paths = new ArrayList<>();
+        parsed.paths().forEach((mergedPath, operations) -> {
+            Map<String, Operation> mergedPathItem = mergedPaths.get(mergedPath);
+            if (mergedPathItem == null) {
+                mergedPathItem = new LinkedHashMap<>();
+                mergedPaths.put(mergedPath, mergedPathItem);
+                paths.add(mergedPath);
+            }
+            for (Map.Entry<String, Fragment> operation : operations.entrySet()) {
+                mergedPathItem.put(operation.getKey(), new Operation(operation.getValue(), parsed.schemaKeys()));
+            }
+        });
+        List<String> schemas = new ArrayList<>();
+        parsed.schemas().forEach((name, fragment) -> {
+            String key = parsed.schemaKeys().get(name);
+            // A schema another service already has is kept once, with the first service's copy
+            mergedSchemas.computeIfAbsent(key, k -> new MergedSchema(name, fragment, parsed.schemaKeys(), new TreeSet<>()))
+                    .services().add(serviceId);
+            schemas.add(key);
+        });
+        contributions.put(serviceId, new Contribution(paths, schemas));
+    }
+
+    /**
+     * Streams through one service's document, rewriting its operations for
+     * /{serviceId} and collecting its schemas as they are read, then works
+     * out the structural key of every schema. Everything else in the
+     * document is skipped, though still checked to be well-formed.
+     * @throws IOException If the document is not a well-formed JSON object.
+     */
+    private Parsed parseService(String serviceId, String spec) throws IOException {
+        Map<String, Map<String, Fragment>> paths = new LinkedHashMap<>();
+        Map<String, Fragment> schemas = new LinkedHashMap<>();
+        Map<String, byte[]> contentHashes = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(spec)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected the document to be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("paths".equals(field) && value == JsonToken.START_OBJECT) {
+                    readPaths(parser, serviceId, paths);
+                } else if ("components".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        if ("schemas".equals(parser.currentName()) && parser.nextToken() == JsonToken.START_OBJECT) {
+                            readSchemas(parser, schemas, contentHashes);
+                        } else {
+                            parser.nextToken();
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Parsed(paths, schemas, schemaKeys(serviceId, paths, schemas, contentHashes));
+    }
+
+    private void readPaths(JsonParser parser, String serviceId, Map<String, Map<String, Fragment>> paths) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String mergedPath = REPEATED_SLASHES.matcher("/" + serviceId + parser.currentName()).replaceAll("/");
+            Map<String, Fragment> operations = paths.computeIfAbsent(mergedPath, path -> new LinkedHashMap<>());
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String httpMethod = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    operations.put(httpMethod, copyOperation(parser, serviceId, httpMethod, mergedPath));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readSchemas(JsonParser parser, Map<String, Fragment> schemas, Map<String, byte[]> contentHashes)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            FragmentWriter out = new FragmentWriter(objectMapper.getFactory(), sha256());
+            contentHashes.put(name, copyValue(parser, out));
+            schemas.put(name, out.finish());
+        }
+    }
+
+    /**
+     * Writes out the operation the parser is at, with its operationId
+     * prefixed by the service id (or generated from the path) and its tags
+     * replaced by the service id.
+     */
+    private Fragment copyOperation(JsonParser parser, String serviceId, String httpMethod, String mergedPath) throws IOException {
+        FragmentWriter out = new FragmentWriter(objectMapper.getFactory(), null);
+        JsonGenerator generator = out.generator;
+        generator.writeStartObject();
+        boolean hasOperationId = false;
+        boolean hasTags = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("operationId".equals(field)) {
+                if (!hasOperationId) {
+                    generator.writeStringField("operationId", serviceId + "_" + parser.getValueAsString(""));
+                    hasOperationId = true;
+                }
+                parser.skipChildren();
+            } else if ("tags".equals(field)) {
+                if (!hasTags) {
+                    writeTags(generator, serviceId);
+                    hasTags = true;
+                }
+                parser.skipChildren();
+            } else {
+                generator.writeFieldName(field);
+                copyValue(parser, out);
+            }
+        }
+        if (!hasOperationId) {
+            generator.writeStringField("operationId",
+                    serviceId + "_" + httpMethod + NON_IDENTIFIER.matcher(mergedPath).replaceAll("_"));
+        }
+        if (!hasTags) {
+            writeTags(generator, serviceId);
+        }
+        generator.writeEndObject();
+        return out.finish();
+    }
+
+    private static void writeTags(JsonGenerator generator, String serviceId) throws IOException {
+        generator.writeArrayFieldStart("tags");
+        generator.writeString(serviceId);
+        generator.writeEndArray();
+    }
+
+    /**
+     * Copies the value the parser is at, leaving a hole for every
+     * components/schemas reference in it. When hashing, also returns what
+     * stands for the value in its parent's hash: its text for a scalar, a
+     * digest for an object (over its members sorted by name, so member order
+     * does not matter) or an array; a reference counts as the name it points at.
+     */
+    private static byte[] copyValue(JsonParser parser, FragmentWriter out) throws IOException {
+        JsonGenerator generator = out.generator;
+        MessageDigest digest = out.digest; // null when not hashing
+        switch (parser.currentToken()) {
+            case START_OBJECT -> {
+                Map<String, byte[]> members = digest == null ? null : new TreeMap<>();
+                generator.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    generator.writeFieldName(field);
+                    byte[] member;
+                    if (parser.nextToken() == JsonToken.VALUE_STRING && "$ref".equals(field)
+                            && parser.getText().startsWith(SCHEMA_REF_PREFIX)) {
+                        String schemaName = parser.getText().substring(SCHEMA_REF_PREFIX.length());
+                        out.ref(schemaName);
+                        member = digest == null ? null : ("$" + schemaName).getBytes(StandardCharsets.UTF_8);
+                    } else {
+                        member = copyValue(parser, out);
+                    }
+                    if (digest != null) {
+                        members.put(field, member);
+                    }
+                }
+                generator.writeEndObject();
+                if (digest == null) {
+                    return null;
+                }
+                // Members are complete before digesting, so nested values can share the one digest
+                digest.update((byte) '{');
+                members.forEach((field, member) -> {
+                    update(digest, field.getBytes(StandardCharsets.UTF_8));
+                    update(digest, member);
+                });
+                return digest.digest();
+            }
+            case START_ARRAY -> {
+                List<byte[]> elements = digest == null ? null : new ArrayList<>();
+                generator.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    byte[] element = copyValue(parser, out);
+                    if (digest != null) {
+                        elements.add(element);
+                    }
+                }
+                generator.writeEndArray();
+                if (digest == null) {
+                    return null;
+                }
+                digest.update((byte) '[');
+                elements.forEach(element -> update(digest, element));
+                return digest.digest();
+            }
+            default -> {
+                generator.copyCurrentEvent(parser);
+                // The token kind keeps "1" apart from 1 and "true" from true
+                return digest == null ? null : (parser.currentToken().id() + ":" + parser.getText()).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Gives every schema a key that is the same in any service whose schema
+     * of that name has the same structure, and refers to schemas that do too.
+     * Schemas that refer to one another in a cycle are keyed together: by
+     * the content hashes of all of them and the keys of the schemas they
+     * refer to outside the cycle. A reference to a schema the service does
+     * not define gets a key of its own, which also keeps the schemas
+     * reaching it from being shared.
+     */
+    private static Map<String, String> schemaKeys(String serviceId, Map<String, Map<String, Fragment>> paths,
+                                                  Map<String, Fragment> schemas, Map<String, byte[]> contentHashes) {
+        Map<String, String> keys = new HashMap<>();
+        List<Fragment> fragments = new ArrayList<>(schemas.values());
+        paths.values().forEach(operations -> fragments.addAll(operations.values()));
+        for (Fragment fragment : fragments) {
+            for (String schemaName : fragment.refs()) {
+                if (!schemas.containsKey(schemaName)) {
+                    keys.put(schemaName, UNDEFINED_SCHEMA + serviceId + "." + schemaName);
+                }
+            }
+        }
+        for (List<String> cycle : referenceCycles(schemas)) {
+            Set<String> inCycle = new HashSet<>(cycle);
+            Map<String, byte[]> members = new TreeMap<>();
+            Set<String> referencedKeys = new TreeSet<>();
+            for (String name : cycle) {
+                members.put(name, contentHashes.get(name));
+                for (String schemaName : schemas.get(name).refs()) {
+                    if (!inCycle.contains(schemaName)) {
+                        referencedKeys.add(keys.get(schemaName));
+                    }
+                }
+            }
+            MessageDigest digest = sha256();
+            members.forEach((name, contentHash) -> {
+                update(digest, name.getBytes(StandardCharsets.UTF_8));
+                update(digest, contentHash);
+            });
+            referencedKeys.forEach(key -> update(digest, key.getBytes(StandardCharsets.UTF_8)));
+            byte[] cycleHash = digest.digest();
+            for (String name : cycle) {
+                MessageDigest schemaDigest = sha256();
+                update(schemaDigest, name.getBytes(StandardCharsets.UTF_8));
+                update(schemaDigest, cycleHash);
+                keys.put(name, HexFormat.of().formatHex(schemaDigest.digest()));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Splits the schemas into groups that reach one another through
+     * references (strongly connected components, by Tarjan's algorithm),
+     * each listed after every group it refers to. Most groups are a single
+     * schema.
+     */
+    private static List<List<String>> referenceCycles(Map<String, Fragment> schemas) {
+        record Visit(String name, Iterator<String> refs) {}
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> lowLink = new HashMap<>();
+        Deque<String> open = new ArrayDeque<>();
+        Set<String> isOpen = new HashSet<>();
+        List<List<String>> cycles = new ArrayList<>();
+        Deque<Visit> visits = new ArrayDeque<>(); // an explicit stack, as reference chains can be long
+        for (String root : schemas.keySet()) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            String next = root;
+            while (next != null || !visits.isEmpty()) {
+                if (next != null) {
+                    index.put(next, index.size());
+                    lowLink.put(next, index.get(next));
+                    open.push(next);
+                    isOpen.add(next);
+                    visits.push(new Visit(next, schemas.get(next).refs().iterator()));
+                    next = null;
+                    continue;
+                }
+                Visit visit = visits.peek();
+                if (visit.refs().hasNext()) {
+                    String ref = visit.refs().next();
+                    if (!schemas.containsKey(ref)) {
+                        continue;
+                    }
+                    if (!index.containsKey(ref)) {
+                        next = ref;
+                    } else if (isOpen.contains(ref)) {
+                        lowLink.put(visit.name(), Math.min(lowLink.get(visit.name()), index.get(ref)));
+                    }
+                    continue;
+                }
+                visits.pop();
+                if (!visits.isEmpty()) {
+                    String parent = visits.peek().name();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(visit.name())));
+                }
+                if (lowLink.get(visit.name()).equals(index.get(visit.name()))) {
+                    List<String> cycle = new ArrayList<>();
+                    String member;
+                    do {
+                        member = open.pop();
+                        isOpen.remove(member);
+                        cycle.add(member);
+                    } while (!member.equals(visit.name()));
+                    cycles.add(cycle);
+                }
+            }
+        }
+        return cycles;
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        // Length-prefixed, so adjacent inputs cannot run into each other
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Publishes the current state for requests.
+     * @param serialize Whether the unified document changed and has to be written out again.
+     */
+    private void publish(boolean serialize, List<String> missedDeadline) {
+        String unifiedJson = serialize || definitions == null ? serializeUnified() : definitions.unifiedSpec();
+
+        Map<String, RawValue> individualSpecs = new HashMap<>();
+        List<String> stale = new ArrayList<>();
+        entries.forEach((serviceId, entry) -> {
+            if (entry.stale()) {
+                stale.add(serviceId);
+            }
+            if (entry.spec() == null) {
+                individualSpecs.put(serviceId, new RawValue(objectMapper.createObjectNode().put("error", entry.error()).toString()));
+            } else {
+                individualSpecs.put(serviceId, new RawValue(entry.spec()));
+            }
+        });
+        stale.sort(null);
+        definitions = new Definitions(unifiedJson, individualSpecs, List.copyOf(missedDeadline), List.copyOf(stale));
+    }
+
+    private String serializeUnified() {
+        Map<String, String> names = publishedSchemaNames();
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("openapi", "3.0.0");
+            generator.writeObjectFieldStart("info");
+            generator.writeStringField("title", "Aggregated API Documentation");
+            generator.writeStringField("version", "1.0.0");
+            generator.writeStringField("description", "Combined documentation from all registered services (generated by AutoDocER)");
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("paths");
+            for (Map.Entry<String, Map<String, Operation>> pathItem : mergedPaths.entrySet()) {
+                generator.writeObjectFieldStart(pathItem.getKey());
+                for (Map.Entry<String, Operation> operation : pathItem.getValue().entrySet()) {
+                    generator.writeFieldName(operation.getKey());
+                    writeFragment(generator, operation.getValue().fragment(), operation.getValue().schemaKeys(), names);
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            if (!mergedSchemas.isEmpty()) {
+                Map<String, MergedSchema> byName = new TreeMap<>();
+                mergedSchemas.forEach((key, schema) -> byName.put(names.get(key), schema));
+                generator.writeObjectFieldStart("components");
+                generator.writeObjectFieldStart("schemas");
+                for (Map.Entry<String, MergedSchema> schema : byName.entrySet()) {
+                    generator.writeFieldName(schema.getKey());
+                    writeFragment(generator, schema.getValue().fragment(), schema.getValue().schemaKeys(), names);
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize the unified spec", e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Names every schema in the unified document, by structural key. A schema
+     * of one service is namespaced as "{serviceId}.{name}"; one several
+     * services share keeps its plain name, with part of its key appended if
+     * that name is taken.
+     */
+    private Map<String, String> publishedSchemaNames() {
+        Map<String, String> names = new HashMap<>();
+        Map<String, Integer> sharedPerName = new HashMap<>();
+        mergedSchemas.forEach((key, schema) -> {
+            if (schema.services().size() == 1) {
+                names.put(key, schema.services().iterator().next() + "." + schema.name());
+            } else {
+                sharedPerName.merge(schema.name(), 1, Integer::sum);
+            }
+        });
+        Set<String> taken = new HashSet<>(names.values());
+        mergedSchemas.forEach((key, schema) -> {
+            if (schema.services().size() > 1) {
+                boolean unique = sharedPerName.get(schema.name()) == 1 && !taken.contains(schema.name());
+                names.put(key, unique ? schema.name() : schema.name() + "_" + key.substring(0, 8));
+            }
+        });
+        return names;
+    }
+
+    /**
+     * Writes a fragment as a value, filling each hole with the reference to
+     * the named schema's entry in the unified document.
+     */
+    private static void writeFragment(JsonGenerator generator, Fragment fragment, Map<String, String> schemaKeys,
+                                      Map<String, String> names) throws IOException {
+        generator.writeRawValue(fragment.text().get(0));
+        for (int i = 0; i < fragment.refs().size(); i++) {
+            String key = schemaKeys.get(fragment.refs().get(i));
+            String name = key.startsWith(UNDEFINED_SCHEMA) ? key.substring(UNDEFINED_SCHEMA.length()) : names.get(key);
+            char[] ref = JsonStringEncoder.getInstance().quoteAsString(SCHEMA_REF_PREFIX + name);
+            generator.writeRaw(ref, 0, ref.length);
+            generator.writeRaw(fragment.text().get(i + 1));
+        }
+    }
+
+    /**
+     * Writes a JSON fragment, cut wherever a components/schemas reference
+     * goes, since the name a schema ends up under in the unified document
+     * depends on which services share it.
+     */
+    private static final class FragmentWriter {
+
+        private final StringWriter out = new StringWriter();
+        private final JsonGenerator generator;
+        private final MessageDigest digest; // for the structural hash; null when the fragment is not hashed
+        private final List<String> text = new ArrayList<>();
+        private final List<String> refs = new ArrayList<>();
+
+        FragmentWriter(JsonFactory factory, MessageDigest digest) throws IOException {
+            this.generator = factory.createGenerator(out);
+            this.digest = digest;
+        }
+
+        /**
+         * Writes a string value whose content is left as a hole for the given schema.
+         */
+        void ref(String schemaName) throws IOException {
+            generator.writeRawValue("\""); // also writes the separator before the value
+            generator.flush();
+            text.add(out.toString());
+            out.getBuffer().setLength(0);
+            refs.add(schemaName);
+            generator.writeRaw('"');
+        }
+
+        Fragment finish() throws IOException {
+            generator.close();
+            text.add(out.toString());
+            return new Fragment(List.copyOf(text), List.copyOf(refs));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (store != null) {
+            store.close();
+        }
+    }
+}
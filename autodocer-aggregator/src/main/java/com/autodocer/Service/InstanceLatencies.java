@@ -0,0 +1,125 @@
+package com.autodocer.Service;
+
+import com.autodocer.DTO.FetchLatencyStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long each instance has been taking to serve its docs, as a moving
+ * average (EWMA) per docs URL, and how long fetches take across the fleet.
+ * <p>
+ * Instances of a service are ranked by their estimate, so the fastest
+ * replica is asked first; instances without an estimate yet come first, in
+ * registry order, so that every replica gets measured. A failed fetch counts
+ * as a sample of the failure penalty, pushing the instance to the back. An
+ * instance not fetched from for a while is forgotten, so one that was
+ * penalized is tried again eventually.
+ * <p>
+ * The hedge delay is a percentile of the recent successful fetches: a fetch
+ * still running after that long is slower than nearly all others, and is
+ * worth racing with a second replica.
+ */
+public class InstanceLatencies {
+
+    private static final double WEIGHT = 0.3; // of the newest sample in the moving average
+    private static final int WINDOW = 512; // recent fetches the hedge delay is taken from
+    private static final int MIN_SAMPLES = 20; // no hedging before this many fetches were timed
+    private static final long FORGET_AFTER_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private static final class Estimate {
+        double millis;
+        long fetches;
+        long failures;
+        long updatedAt;
+    }
+
+    private final double hedgePercentile;
+    private final long hedgeMinDelayMillis;
+    private final long failurePenaltyMillis;
+    private final Map<String, Estimate> estimates = new HashMap<>();
+    private final long[] recent = new long[WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    /**
+     * @param hedgePercentile      Percentile (0-100) of recent fetch times after which a fetch is hedged; 0 never hedges.
+     * @param hedgeMinDelayMillis  The hedge delay is never shorter than this.
+     * @param failurePenaltyMillis What a failed fetch counts as.
+     */
+    public InstanceLatencies(double hedgePercentile, long hedgeMinDelayMillis, long failurePenaltyMillis) {
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+        this.failurePenaltyMillis = failurePenaltyMillis;
+    }
+
+    public synchronized void recordSuccess(String docsUrl, long millis) {
+        update(docsUrl, millis).fetches++;
+        recent[recentNext] = millis;
+        recentNext = (recentNext + 1) % WINDOW;
+        recentCount = Math.min(recentCount + 1, WINDOW);
+    }
+
+    public synchronized void recordFailure(String docsUrl, long millis) {
+        Estimate estimate = update(docsUrl, Math.max(millis, failurePenaltyMillis));
+        estimate.fetches++;
+        estimate.failures++;
+    }
+
+    /**
+     * Orders the given docs URLs fastest first.
+     */
+    public synchronized List<String> rank(List<String> docsUrls) {
+        if (docsUrls.size() < 2) {
+            return docsUrls;
+        }
+        forgetIdle();
+        List<String> ranked = new ArrayList<>(docsUrls);
+        // Stable, so unmeasured instances keep their registry order
+        ranked.sort(Comparator.comparingDouble(docsUrl -> {
+            Estimate estimate = estimates.get(docsUrl);
+            return estimate == null ? -1 : estimate.millis;
+        }));
+        return ranked;
+    }
+
+    /**
+     * @return How long to wait for the first instance before asking a second one, or -1 not to hedge.
+     */
+    public synchronized long hedgeDelayMillis() {
+        if (hedgePercentile <= 0 || recentCount < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(recent, recentCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(Math.min(hedgePercentile, 100) / 100 * sorted.length) - 1;
+        return Math.max(hedgeMinDelayMillis, sorted[Math.max(index, 0)]);
+    }
+
+    public synchronized Map<String, FetchLatencyStats.Instance> getEstimates() {
+        forgetIdle();
+        Map<String, FetchLatencyStats.Instance> snapshot = new TreeMap<>();
+        estimates.forEach((docsUrl, estimate) -> snapshot.put(docsUrl,
+                new FetchLatencyStats.Instance(Math.round(estimate.millis), estimate.fetches, estimate.failures)));
+        return snapshot;
+    }
+
+    private Estimate update(String docsUrl, long millis) {
+        Estimate estimate = estimates.computeIfAbsent(docsUrl, url -> new Estimate());
+        estimate.millis = estimate.fetches == 0 ? millis : estimate.millis + WEIGHT * (millis - estimate.millis);
+        estimate.updatedAt = System.nanoTime();
+        return estimate;
+    }
+
+    // Also keeps instances that left the registry from piling up
+    private void forgetIdle() {
+        long now = System.nanoTime();
+        estimates.values().removeIf(estimate -> now - estimate.updatedAt > FORGET_AFTER_NANOS);
+    }
+}
@@ -0,0 +1,198 @@
+package com.autodocer.Service;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.eureka.registry.InstanceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns changes in the Eureka registry into targeted refetches of the
+ * affected services' docs, instead of waiting for the next full round.
+ * <p>
+ * The registry lives in this process, so it is cheap to look at often: each
+ * poll reduces every application to a fingerprint of its instances' ids,
+ * statuses and dirty timestamps. An instance registering, being cancelled or
+ * changing status changes the fingerprint; a plain lease renewal does not.
+ * <p>
+ * Changes are debounced per service: a refetch waits until the service has
+ * been quiet for the debounce period (but no longer than the maximum delay
+ * after its first change), so a rolling deploy of many replicas costs one
+ * fetch rather than one per replica.
+ * <p>
+ * Every poll collects the services whose debounce has run out into one
+ * refresh, run on a thread of its own so that polling goes on meanwhile.
+ * A deploy touching many services thus costs one round, not one per
+ * service. Services that come due while a refresh runs go into the next one.
+ */
+public class RegistryWatcher implements ApplicationListener<ContextRefreshedEvent>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistryWatcher.class);
+
+    // A changed service whose refetch waits for the changes to settle
+    private record Pending(long firstChangeNanos, long dueNanos) {}
+
+    private final InstanceRegistry instanceRegistry;
+    private final AggregatedSpecCache specCache;
+    private final long pollIntervalMillis;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+
+    // Only touched on the scheduler thread
+    private final Map<String, String> fingerprints = new HashMap<>();
+    private final Map<String, Pending> pending = new HashMap<>();
+    private boolean baselineTaken;
+    private Future<?> refetching;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService refetcher;
+
+    /**
+     * @param pollIntervalMillis How often the registry is compared with the previous poll.
+     * @param debounceMillis     Quiet period a service needs before it is refetched.
+     * @param maxDelayMillis     Longest a refetch is put off by a service that keeps changing.
+     */
+    public RegistryWatcher(InstanceRegistry instanceRegistry, AggregatedSpecCache specCache, long pollIntervalMillis,
+                           long debounceMillis, long maxDelayMillis) {
+        this.instanceRegistry = instanceRegistry;
+        this.specCache = specCache;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ContextRefreshedEvent event) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThread("autodocer-registry-watch"));
+        refetcher = Executors.newSingleThreadExecutor(daemonThread("autodocer-registry-refetch"));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                // A failed poll must not cancel the schedule
+                log.error("Watching the registry failed: {}", e.getMessage(), e);
+            }
+        }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Watching the registry every {} ms, refetching changed services after {} ms of quiet",
+                pollIntervalMillis, debounceMillis);
+    }
+
+    private void poll() {
+        Map<String, String> current = new HashMap<>();
+        for (Application app : instanceRegistry.getApplications().getRegisteredApplications()) {
+            current.put(app.getName().toLowerCase(), fingerprint(app));
+        }
+        if (!baselineTaken) {
+            // The cache's own initial round covers what is registered now
+            fingerprints.putAll(current);
+            baselineTaken = true;
+            return;
+        }
+
+        List<String> changed = new ArrayList<>();
+        current.forEach((serviceId, fingerprint) -> {
+            if (!fingerprint.equals(fingerprints.get(serviceId))) {
+                changed.add(serviceId);
+            }
+        });
+        for (String serviceId : fingerprints.keySet()) {
+            if (!current.containsKey(serviceId)) {
+                changed.add(serviceId);
+            }
+        }
+        fingerprints.clear();
+        fingerprints.putAll(current);
+        changed.forEach(this::onChange);
+        refetchDue();
+    }
+
+    /**
+     * (Re)sets when a service that changed is due for a refetch.
+     */
+    private void onChange(String serviceId) {
+        long now = System.nanoTime();
+        Pending previous = pending.get(serviceId);
+        long firstChange = previous != null ? previous.firstChangeNanos() : now;
+        long remaining = maxDelayMillis - (now - firstChange) / 1_000_000;
+        long delay = Math.max(0, Math.min(debounceMillis, remaining));
+        pending.put(serviceId, new Pending(firstChange, now + TimeUnit.MILLISECONDS.toNanos(delay)));
+        log.debug("Registry change for {}, refetching in {} ms", serviceId, delay);
+    }
+
+    /**
+     * Hands every service that is due to one refresh, unless the previous
+     * one is still running.
+     */
+    private void refetchDue() {
+        if (pending.isEmpty() || (refetching != null && !refetching.isDone())) {
+            return;
+        }
+        long now = System.nanoTime();
+        Set<String> due = new TreeSet<>();
+        for (Iterator<Map.Entry<String, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Pending> entry = it.next();
+            if (now - entry.getValue().dueNanos() >= 0) {
+                due.add(entry.getKey());
+                it.remove();
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        log.info("Registry changes for {} settled, refetching their docs", due);
+        refetching = refetcher.submit(() -> {
+            try {
+                specCache.refresh(due);
+            } catch (RuntimeException e) {
+                log.error("Refetching docs for {} failed: {}", due, e.getMessage(), e);
+            }
+        });
+    }
+
+    private static ThreadFactory daemonThread(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * What about an application's instances matters to its docs: which
+     * instances there are, whether they are UP, and whether they restarted.
+     */
+    private static String fingerprint(Application app) {
+        List<String> instances = new ArrayList<>();
+        for (InstanceInfo instance : app.getInstancesAsIsFromEureka()) {
+            instances.add(instance.getId() + "/" + instance.getStatus() + "/" + instance.getLastDirtyTimestamp());
+        }
+        instances.sort(null);
+        return String.join(",", instances);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            refetcher.shutdownNow();
+        }
+    }
+}
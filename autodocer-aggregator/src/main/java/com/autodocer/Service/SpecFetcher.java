@@ -0,0 +1,358 @@
+package com.autodocer.Service;
+
+import com.autodocer.DTO.FetchLatencyStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches the docs of many services concurrently.
+ * <p>
+ * All fetches, from every request, run on one bounded pool, so its size is
+ * the cap on services being fetched at once. Every request to an instance,
+ * hedges included, also holds one of as many permits while it runs, so the
+ * same number caps outbound requests, even while the losers of hedged
+ * fetches are still finishing. Each service is limited by
+ * the connect and read timeouts of the RestTemplate, and a whole round by
+ * an overall deadline: services that have not answered by then are
+ * reported as missed (their queued fetches are cancelled) instead of
+ * holding up the services that did answer.
+ * <p>
+ * A target may carry the ETag and Last-Modified of the copy the caller
+ * already has; the request is then conditional and a 304 answer is
+ * reported as not modified, without a body.
+ * <p>
+ * A target lists the docs URLs of all UP instances of its service. The one
+ * with the lowest latency estimate is asked first (see
+ * {@link InstanceLatencies}); if it has not answered within the hedge
+ * delay, the next one is asked as well and the first good answer is taken.
+ * A replica that is overloaded or pausing for GC then costs a round the
+ * hedge delay rather than its full response time. The slower request is
+ * left to finish, so its time still counts against its instance. No hedge
+ * is sent while every permit is taken, as it would only hold up other
+ * services. A replica that fails is followed by the next one at once,
+ * hedging or not, for as long as the deadline allows.
+ * <p>
+ * A document is handed on as the JSON text it was served as; it is parsed
+ * (and checked) while it is merged, without building a tree of it first.
+ */
+public class SpecFetcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpecFetcher.class);
+
+    /**
+     * @param docsUrls     Docs URLs of the service's instances, any of which may be asked; at least one.
+     * @param etag         Validator of the cached copy, sent as If-None-Match; may be null.
+     * @param lastModified Validator of the cached copy, sent as If-Modified-Since; may be null.
+     */
+    public record Target(String serviceId, List<String> docsUrls, String etag, String lastModified) {
+
+        public Target(String serviceId, String docsUrl) {
+            this(serviceId, List.of(docsUrl), null, null);
+        }
+    }
+
+    /**
+     * The spec of a service (as JSON text) with its validators, a not-modified
+     * answer, or the reason there is neither.
+     * @param docsUrl The instance the result came from.
+     */
+    public record Result(
+            String serviceId,
+            String docsUrl,
+            String spec,
+            String etag,
+            String lastModified,
+            boolean notModified,
+            String error,
+            long elapsedMillis
+    ) {
+
+        static Result failed(String serviceId, String docsUrl, String error, long elapsedMillis) {
+            return new Result(serviceId, docsUrl, null, null, null, false, error, elapsedMillis);
+        }
+    }
+
+    /**
+     * @param results        One per target that answered (or failed) in time, in target order.
+     * @param missedDeadline Services that had not answered when the deadline passed.
+     */
+    public record Round(List<Result> results, List<String> missedDeadline) {}
+
+    private final RestTemplate restTemplate;
+    private final ExecutorService executor;
+    // Runs the requests of hedged fetches; they wait for a permit like any other
+    private final ExecutorService attemptExecutor;
+    private final Semaphore requestPermits;
+    private final long deadlineMillis;
+    private final InstanceLatencies latencies;
+    private final AtomicLong hedgedFetches = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param maxConcurrency Fetches, and requests to instances, in flight at once, across all requests.
+     * @param deadlineMillis Time a round may take before the missing services are given up on.
+     */
+    public SpecFetcher(RestTemplate restTemplate, int maxConcurrency, long deadlineMillis) {
+        this(restTemplate, maxConcurrency, deadlineMillis, 0, 0);
+    }
+
+    /**
+     * @param hedgePercentile     Percentile (0-100) of recent fetch times after which a second replica is asked; 0 never hedges.
+     * @param hedgeMinDelayMillis Shortest wait before a second replica is asked.
+     */
+    public SpecFetcher(RestTemplate restTemplate, int maxConcurrency, long deadlineMillis, double hedgePercentile,
+                       long hedgeMinDelayMillis) {
+        this.restTemplate = restTemplate;
+        this.deadlineMillis = deadlineMillis;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("autodocer-fetch-"));
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.attemptExecutor = Executors.newCachedThreadPool(daemonThreads("autodocer-hedge-"));
+        this.requestPermits = new Semaphore(maxConcurrency);
+        // A failure counts as a fetch that used up the whole deadline
+        this.latencies = new InstanceLatencies(hedgePercentile, hedgeMinDelayMillis, deadlineMillis);
+    }
+
+    public FetchLatencyStats getLatencyStats() {
+        return new FetchLatencyStats(latencies.hedgeDelayMillis(), hedgedFetches.get(), hedgeWins.get(),
+                latencies.getEstimates());
+    }
+
+    /**
+     * Fetches all targets and waits at most the deadline for them.
+     */
+    public Round fetchAll(List<Target> targets) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        List<CompletableFuture<Result>> futures = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            futures.add(CompletableFuture.supplyAsync(() -> fetch(target, deadline), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Deadline of {} ms passed with {} of {} services still pending", deadlineMillis,
+                    futures.stream().filter(future -> !future.isDone()).count(), targets.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // fetch() reports its own failures as results, so this is unexpected
+            log.error("Unexpected failure while fetching docs: {}", e.getMessage(), e);
+        }
+
+        List<Result> results = new ArrayList<>(targets.size());
+        List<String> missedDeadline = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            CompletableFuture<Result> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                results.add(future.join());
+            } else {
+                // Queued fetches are dropped; running ones end with their read timeout
+                future.cancel(false);
+                missedDeadline.add(targets.get(i).serviceId());
+            }
+        }
+        log.info("Fetched docs for {} of {} services in {} ms", results.size(), targets.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return new Round(results, missedDeadline);
+    }
+
+    /**
+     * Asks the fastest instance, and the next fastest as well once the hedge
+     * delay has passed without an answer. After a failure the next instance
+     * in line is asked, until one answers or the deadline passes.
+     * @param deadline System.nanoTime() by which the round has to be done.
+     */
+    private Result fetch(Target target, long deadline) {
+        List<String> docsUrls = latencies.rank(target.docsUrls());
+        long hedgeDelayMillis = docsUrls.size() > 1 ? latencies.hedgeDelayMillis() : -1;
+        if (hedgeDelayMillis < 0) {
+            Result result = attempt(target, docsUrls.get(0), deadline);
+            for (int i = 1; i < docsUrls.size() && result.error() != null && System.nanoTime() - deadline < 0; i++) {
+                log.info("Docs for {} failed from {}, asking {}", target.serviceId(), result.docsUrl(), docsUrls.get(i));
+                result = attempt(target, docsUrls.get(i), deadline);
+            }
+            return result;
+        }
+
+        // Attempts report here; once the fetch is over, those not yet started are skipped
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        AtomicBoolean over = new AtomicBoolean();
+        int next = 0;
+        int inFlight = 0;
+        long hedgeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis);
+        boolean hedgeDue = false;
+        String hedgeUrl = null;
+        Result failure = null;
+        launch(target, docsUrls.get(next++), deadline, over, results);
+        inFlight++;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                boolean mayHedge = !hedgeDue && next < docsUrls.size();
+                long waitNanos = Math.min(deadline - now, mayHedge ? hedgeAt - now : Long.MAX_VALUE);
+                Result result = results.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        return failure != null ? failure
+                                : Result.failed(target.serviceId(), docsUrls.get(0), "Deadline passed", deadlineMillis);
+                    }
+                    hedgeDue = true;
+                    if (requestPermits.availablePermits() == 0) {
+                        // A hedge would only queue behind other services' requests
+                        log.debug("Docs for {} not back after {} ms, but no request slot is free to hedge",
+                                target.serviceId(), hedgeDelayMillis);
+                        continue;
+                    }
+                    hedgeUrl = docsUrls.get(next++);
+                    log.info("Docs for {} not back from {} after {} ms, also asking {}", target.serviceId(),
+                            docsUrls.get(0), hedgeDelayMillis, hedgeUrl);
+                    hedgedFetches.incrementAndGet();
+                    launch(target, hedgeUrl, deadline, over, results);
+                    inFlight++;
+                    continue;
+                }
+                inFlight--;
+                if (result.error() == null) {
+                    if (result.docsUrl().equals(hedgeUrl)) {
+                        hedgeWins.incrementAndGet();
+                    }
+                    return result;
+                }
+                failure = result;
+                if (next < docsUrls.size() && System.nanoTime() - deadline < 0) {
+                    log.info("Docs for {} failed from {}, asking {}", target.serviceId(), result.docsUrl(), docsUrls.get(next));
+                    launch(target, docsUrls.get(next++), deadline, over, results);
+                    inFlight++;
+                } else if (inFlight == 0) {
+                    return failure;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.failed(target.serviceId(), docsUrls.get(0), "Interrupted", 0);
+        } finally {
+            over.set(true);
+        }
+    }
+
+    private void launch(Target target, String docsUrl, long deadline, AtomicBoolean over, BlockingQueue<Result> results) {
+        attemptExecutor.execute(() -> {
+            if (!over.get()) {
+                results.add(attempt(target, docsUrl, deadline));
+            }
+        });
+    }
+
+    /**
+     * One request, timed against its instance, once a permit is free.
+     */
+    private Result attempt(Target target, String docsUrl, long deadline) {
+        try {
+            if (!requestPermits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                // Not the instance's fault, so not counted against it
+                return Result.failed(target.serviceId(), docsUrl, "No request slot free before the deadline", 0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.failed(target.serviceId(), docsUrl, "Interrupted", 0);
+        }
+        try {
+            Result result = request(target, docsUrl);
+            if (result.error() == null) {
+                latencies.recordSuccess(docsUrl, result.elapsedMillis());
+            } else {
+                latencies.recordFailure(docsUrl, result.elapsedMillis());
+            }
+            return result;
+        } finally {
+            requestPermits.release();
+        }
+    }
+
+    private Result request(Target target, String docsUrl) {
+        long start = System.nanoTime();
+        String serviceId = target.serviceId();
+        try {
+            log.info("Fetching docs for {} from {}", serviceId, docsUrl);
+            HttpHeaders headers = new HttpHeaders();
+            if (target.etag() != null) {
+                headers.setIfNoneMatch(target.etag());
+            }
+            if (target.lastModified() != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, target.lastModified());
+            }
+            // Read whole, as bytes (the String converter would decode through a growing char
+            // buffer), rather than parsed off the response stream: the text is kept anyway,
+            // for the per-service view and the on-disk store, so a parser on the stream would
+            // still need a copy of it; and a malformed document stays a failure of the
+            // service's merge, not a network failure counted against the instance. The bytes
+            // are garbage once decoded, so only the text outlives this method
+            ResponseEntity<byte[]> response = restTemplate.exchange(docsUrl, HttpMethod.GET,
+                    new HttpEntity<>(headers), byte[].class);
+            if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                log.debug("Docs for {} not modified", serviceId);
+                return new Result(serviceId, docsUrl, null, target.etag(), target.lastModified(), true, null, elapsedMillis(start));
+            }
+            byte[] body = response.getBody();
+            String openApiJsonString = body == null ? null : new String(body, StandardCharsets.UTF_8);
+            if (openApiJsonString == null || openApiJsonString.isBlank()) {
+                log.warn("Received empty response for docs from {}", serviceId);
+                return Result.failed(serviceId, docsUrl, "Received empty response", elapsedMillis(start));
+            }
+            return new Result(serviceId, docsUrl, openApiJsonString, response.getHeaders().getETag(),
+                    response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED), false, null, elapsedMillis(start));
+        } catch (RestClientException e) {
+            log.error("Network error fetching docs for service {}: {}", serviceId, e.getMessage());
+            return Result.failed(serviceId, docsUrl, "Network error: " + e.getMessage(), elapsedMillis(start));
+        } catch (Exception e) {
+            log.error("Error fetching docs for service {}: {}", serviceId, e.getMessage(), e);
+            return Result.failed(serviceId, docsUrl, "Processing error: " + e.getMessage(), elapsedMillis(start));
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        attemptExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,203 @@
+package com.autodocer.Service;
+
+import com.autodocer.DTO.OutboundClientStats;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The outbound HTTP client used to fetch service docs.
+ * <p>
+ * By default this is a pooled Apache HttpClient: connections are kept alive
+ * and reused across refresh rounds, capped in total and per host, idle ones
+ * are evicted, and responses are requested with Accept-Encoding gzip and
+ * decompressed transparently. An OpenAPI document compresses well, so this
+ * saves both the TCP (and TLS) setup and most of the transfer.
+ * <p>
+ * With http2 enabled the JDK client is used instead; it negotiates HTTP/2
+ * (ALPN for https, an upgrade for plain http) and multiplexes all fetches to
+ * a host over one connection, falling back to HTTP/1.1 where the service
+ * does not support it. It keeps no pool statistics.
+ */
+public class SpecHttpClient implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpecHttpClient.class);
+
+    /**
+     * @param maxConnections        Connections open at once, across all services.
+     * @param maxConnectionsPerHost Connections open at once to one host (scheme, host and port).
+     * @param idleTimeoutMillis     How long an unused keep-alive connection is kept.
+     * @param http2                 Use the JDK client and negotiate HTTP/2.
+     */
+    public record Settings(
+            Duration connectTimeout,
+            Duration readTimeout,
+            int maxConnections,
+            int maxConnectionsPerHost,
+            long idleTimeoutMillis,
+            boolean http2
+    ) {}
+
+    private final RestTemplate restTemplate;
+    private final PoolingHttpClientConnectionManager connectionManager; // null for HTTP/2
+    private final AutoCloseable client;
+
+    public SpecHttpClient(Settings settings) {
+        if (settings.http2()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(settings.connectTimeout())
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(settings.readTimeout());
+            this.restTemplate = new RestTemplate(requestFactory);
+            // The JDK client does not decompress on its own
+            this.restTemplate.getInterceptors().add(new GzipInterceptor());
+            this.connectionManager = null;
+            this.client = () -> {}; // the JDK client (Java 17) has nothing to close; idle connections time out
+            log.info("Fetching service docs over HTTP/2 where supported (JDK client)");
+            return;
+        }
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnectionsPerHost())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                        // Re-check connections that sat idle, in case the service closed them
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.idleTimeoutMillis()))
+                .build(); // content compression (Accept-Encoding, decompression) is on by default
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        // A fetch may wait for a connection when its host is at the limit
+        requestFactory.setConnectionRequestTimeout((int) settings.readTimeout().toMillis());
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.client = httpClient;
+        log.info("Fetching service docs over pooled HTTP/1.1 ({} connections, {} per host)",
+                settings.maxConnections(), settings.maxConnectionsPerHost());
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    public OutboundClientStats getStats() {
+        if (connectionManager == null) {
+            return new OutboundClientStats("HTTP/2", null, Map.of());
+        }
+        Map<String, OutboundClientStats.Pool> perHost = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            perHost.put(route.getTargetHost().toURI(), pool(connectionManager.getStats(route)));
+        }
+        return new OutboundClientStats("HTTP/1.1", pool(connectionManager.getTotalStats()), perHost);
+    }
+
+    private static OutboundClientStats.Pool pool(PoolStats stats) {
+        return new OutboundClientStats.Pool(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("Could not close the docs client: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Asks for gzip and unwraps compressed responses, for the JDK client.
+     */
+    private static final class GzipInterceptor implements ClientHttpRequestInterceptor {
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+                throws IOException {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            ClientHttpResponse response = execution.execute(request, body);
+            HttpStatusCode status = response.getStatusCode();
+            if (status.value() == 204 || status.value() == 304
+                    || !"gzip".equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+                return response;
+            }
+            return new GunzippedResponse(response);
+        }
+    }
+
+    private static final class GunzippedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        GunzippedResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(delegate.getHeaders());
+            // They describe the compressed bytes
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new GZIPInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.autodocer.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last-known-good copy of every service's spec on local disk, so that a
+ * restarted aggregator can serve the fleet's docs before it has reached any
+ * service, and keep serving a service's docs while it is down.
+ * <p>
+ * The file is an append-only log. Each record is a one-line JSON header
+ * (service id, validators, fetch time, body length) followed by the spec
+ * itself; a removed service is recorded as a header without a body. On
+ * startup the file is memory-mapped and only the headers are read until the
+ * newest record of each service is known, so superseded specs are skipped
+ * without being touched. A torn record at the end (after a crash) is cut
+ * off. The log is compacted, by rewriting only the live records and
+ * replacing the file atomically, once most of it is superseded.
+ */
+public class SpecStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpecStore.class);
+
+    // Compact when dead records outweigh live ones, but not for small files
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    /**
+     * A service's spec as last fetched successfully.
+     */
+    public record StoredSpec(String serviceId, String docsUrl, String spec, String etag, String lastModified,
+                             String specHash, Instant fetchedAt) {}
+
+    // Where the newest record of a service sits in the mapped file
+    private record Located(JsonNode header, int recordStart, int bodyStart, int bodyLength) {}
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // The live records, for compaction; the spec texts are shared with the cache
+    private final Map<String, StoredSpec> live = new HashMap<>();
+    private final Map<String, Long> liveBytes = new HashMap<>();
+
+    private OutputStream out;
+    private long fileBytes;
+    // The torn end of the file could not be cut off, so it is rewritten before the next append
+    private boolean rewriteBeforeAppend;
+
+    public SpecStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the newest record of every service.
+     */
+    public synchronized Map<String, StoredSpec> load() {
+        live.clear();
+        liveBytes.clear();
+        fileBytes = 0;
+        rewriteBeforeAppend = false;
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        long start = System.nanoTime();
+        int records = 0;
+        long size;
+        int position = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                log.error("Spec store {} is too large to map ({} bytes), starting empty", file, size);
+                return Map.of();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            Map<String, Located> newest = new LinkedHashMap<>();
+            while (position < size) {
+                int endOfHeader = indexOf(buffer, (byte) '\n', position);
+                if (endOfHeader < 0) {
+                    break;
+                }
+                JsonNode header;
+                try {
+                    header = objectMapper.readTree(bytes(buffer, position, endOfHeader - position));
+                } catch (IOException e) {
+                    break;
+                }
+                int bodyStart = endOfHeader + 1;
+                int bodyLength = header.path("n").asInt(-1);
+                if (!header.hasNonNull("s") || bodyLength < 0 || (long) bodyStart + bodyLength + 1 > size) {
+                    break;
+                }
+                if (header.path("d").asBoolean(false)) {
+                    newest.remove(header.path("s").asText());
+                } else {
+                    newest.put(header.path("s").asText(), new Located(header, position, bodyStart, bodyLength));
+                }
+                position = bodyStart + bodyLength + 1;
+                records++;
+            }
+
+            for (Map.Entry<String, Located> entry : newest.entrySet()) {
+                Located located = entry.getValue();
+                JsonNode header = located.header();
+                String spec = new String(bytes(buffer, located.bodyStart(), located.bodyLength()), StandardCharsets.UTF_8);
+                StoredSpec stored = new StoredSpec(entry.getKey(), text(header, "u"), spec, text(header, "e"),
+                        text(header, "l"), text(header, "h"), Instant.ofEpochMilli(header.path("t").asLong()));
+                live.put(entry.getKey(), stored);
+                liveBytes.put(entry.getKey(), (long) located.bodyStart() + located.bodyLength() + 1 - located.recordStart());
+            }
+        } catch (IOException e) {
+            log.error("Could not read spec store {}: {}", file, e.getMessage());
+            live.clear();
+            liveBytes.clear();
+            return Map.of();
+        }
+        fileBytes = position;
+        if (position < size) {
+            // A torn last record after a crash; later appends must start at a record boundary.
+            // Cut only now that the live records are copied out and the mapping is unreachable,
+            // as some platforms refuse to truncate a file while it is mapped
+            truncateTornTail(position, size);
+        }
+        log.info("Loaded last-known-good specs of {} services from {} ({} records, {} bytes) in {} ms",
+                live.size(), file, records, fileBytes, (System.nanoTime() - start) / 1_000_000);
+        return Map.copyOf(live);
+    }
+
+    /**
+     * Appends a successfully fetched spec.
+     */
+    public synchronized void put(StoredSpec stored) {
+        try {
+            byte[] body = stored.spec().getBytes(StandardCharsets.UTF_8);
+            long written = append(header(stored, body.length), body);
+            live.put(stored.serviceId(), stored);
+            liveBytes.put(stored.serviceId(), written);
+        } catch (IOException e) {
+            log.error("Could not write spec of {} to store {}: {}", stored.serviceId(), file, e.getMessage());
+            discardPartialRecord();
+        }
+    }
+
+    /**
+     * Records that a service is gone, so it is not restored on the next start.
+     */
+    public synchronized void remove(String serviceId) {
+        if (live.remove(serviceId) == null) {
+            return;
+        }
+        liveBytes.remove(serviceId);
+        ObjectNode header = objectMapper.createObjectNode();
+        header.put("s", serviceId);
+        header.put("d", true);
+        header.put("n", 0);
+        try {
+            append(header, new byte[0]);
+        } catch (IOException e) {
+            log.error("Could not write removal of {} to store {}: {}", serviceId, file, e.getMessage());
+            discardPartialRecord();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live records once it is mostly
+     * superseded ones.
+     */
+    public synchronized void compactIfNeeded() {
+        long liveTotal = liveBytes.values().stream().mapToLong(Long::longValue).sum();
+        if (fileBytes < MIN_COMPACT_BYTES || fileBytes <= 2 * liveTotal) {
+            return;
+        }
+        compact();
+    }
+
+    /**
+     * Rewrites the file with only the live records, replacing it atomically.
+     * @return Whether the file was replaced.
+     */
+    private boolean compact() {
+        closeWriter();
+        long before = fileBytes;
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            long written = 0;
+            try (OutputStream compacted = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                for (StoredSpec stored : live.values()) {
+                    byte[] body = stored.spec().getBytes(StandardCharsets.UTF_8);
+                    long size = write(compacted, header(stored, body.length), body);
+                    liveBytes.put(stored.serviceId(), size);
+                    written += size;
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fileBytes = written;
+            log.info("Compacted spec store {} from {} to {} bytes", file, before, written);
+            return true;
+        } catch (IOException e) {
+            log.error("Could not compact spec store {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeWriter();
+    }
+
+    private ObjectNode header(StoredSpec stored, int bodyLength) {
+        ObjectNode header = objectMapper.createObjectNode();
+        header.put("s", stored.serviceId());
+        header.put("u", stored.docsUrl());
+        header.put("e", stored.etag());
+        header.put("l", stored.lastModified());
+        header.put("h", stored.specHash());
+        header.put("t", stored.fetchedAt().toEpochMilli());
+        header.put("n", bodyLength);
+        return header;
+    }
+
+    private long append(ObjectNode header, byte[] body) throws IOException {
+        if (rewriteBeforeAppend) {
+            if (!compact()) {
+                throw new IOException("the torn end of the file is still in place");
+            }
+            rewriteBeforeAppend = false;
+        }
+        if (out == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND));
+        }
+        long written = write(out, header, body);
+        out.flush();
+        fileBytes += written;
+        return written;
+    }
+
+    private long write(OutputStream stream, ObjectNode header, byte[] body) throws IOException {
+        byte[] headerBytes = objectMapper.writeValueAsBytes(header);
+        stream.write(headerBytes);
+        stream.write('\n');
+        stream.write(body);
+        stream.write('\n');
+        return headerBytes.length + 1L + body.length + 1L;
+    }
+
+    private void truncateTornTail(int position, long size) {
+        log.warn("Cutting {} unreadable bytes off the end of spec store {}", size - position, file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(position);
+        } catch (IOException e) {
+            log.error("Could not cut the torn end off spec store {}, rewriting it before the next write: {}",
+                    file, e.getMessage());
+            rewriteBeforeAppend = true;
+        }
+    }
+
+    /**
+     * Cuts a failed append back off, so a later one does not follow a torn record.
+     */
+    private void discardPartialRecord() {
+        closeWriter();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > fileBytes) {
+                channel.truncate(fileBytes);
+            }
+        } catch (IOException e) {
+            log.error("Could not truncate spec store {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void closeWriter() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Nothing left to flush that we could recover
+            }
+            out = null;
+        }
+    }
+
+    private static String text(JsonNode header, String field) {
+        JsonNode value = header.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static byte[] bytes(MappedByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, byte value, int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
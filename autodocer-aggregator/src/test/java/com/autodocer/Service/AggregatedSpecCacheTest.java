@@ -0,0 +1,251 @@
+package com.autodocer.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.registry.InstanceRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deduplication of schemas across services in the unified document: shared
+ * structures, reference cycles, name collisions and undefined references.
+ * Services are served from a local HTTP server and listed by a stub registry.
+ */
+class AggregatedSpecCacheTest {
+
+    private static final String SCHEMAS = "#/components/schemas/";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> specs = new TreeMap<>(); // by service id
+    private HttpServer server;
+    private SpecFetcher fetcher;
+    private AggregatedSpecCache cache;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String serviceId = exchange.getRequestURI().getPath().split("/")[1];
+            String spec;
+            synchronized (specs) {
+                spec = specs.get(serviceId);
+            }
+            byte[] body = spec == null ? new byte[0] : spec.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(spec == null ? 404 : 200, body.length == 0 ? -1 : body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        fetcher = new SpecFetcher(new RestTemplate(), 4, 10_000);
+        cache = new AggregatedSpecCache(registry(), fetcher, 600_000, 10_000);
+    }
+
+    @AfterEach
+    void stop() {
+        cache.close();
+        fetcher.close();
+        server.stop(0);
+    }
+
+    @Test
+    void sameSchemaInTwoServicesIsStoredOnce() throws IOException {
+        serve("users", """
+                {"paths":{"/users":{"get":{"responses":{"500":{"$ref":"#/components/schemas/ErrorBody"}}}}},
+                 "components":{"schemas":{
+                  "ErrorBody":{"type":"object","properties":{"code":{"type":"integer"},"message":{"type":"string"}}},
+                  "User":{"type":"object","properties":{"name":{"type":"string"}}}}}}""");
+        // Same structure, members in another order
+        serve("orders", """
+                {"paths":{"/orders":{"get":{"responses":{"500":{"$ref":"#/components/schemas/ErrorBody"}}}}},
+                 "components":{"schemas":{
+                  "ErrorBody":{"properties":{"message":{"type":"string"},"code":{"type":"integer"}},"type":"object"},
+                  "Order":{"type":"object","properties":{"name":{"type":"string"}}}}}}""");
+
+        JsonNode unified = refresh();
+
+        assertEquals(List.of("ErrorBody", "orders.Order", "users.User"), schemaNames(unified));
+        assertEquals(SCHEMAS + "ErrorBody", ref(unified, "/users/users", "get"));
+        assertEquals(SCHEMAS + "ErrorBody", ref(unified, "/orders/orders", "get"));
+    }
+
+    @Test
+    void sameNameWithOtherStructureIsNamespaced() throws IOException {
+        serve("users", service("/users", "Page", """
+                "Page":{"type":"object","properties":{"items":{"type":"array"}}}"""));
+        serve("orders", service("/orders", "Page", """
+                "Page":{"type":"object","properties":{"items":{"type":"array"},"total":{"type":"integer"}}}"""));
+
+        JsonNode unified = refresh();
+
+        assertEquals(List.of("orders.Page", "users.Page"), schemaNames(unified));
+        assertEquals(SCHEMAS + "users.Page", ref(unified, "/users/users", "get"));
+        assertEquals(SCHEMAS + "orders.Page", ref(unified, "/orders/orders", "get"));
+    }
+
+    @Test
+    void cycleIsSharedWhenEveryMemberMatches() throws IOException {
+        serve("users", service("/users", "Node", """
+                "Node":{"type":"object","properties":{"children":{"type":"array","items":{"$ref":"#/components/schemas/Child"}}}},
+                "Child":{"type":"object","properties":{"parent":{"$ref":"#/components/schemas/Node"}}}"""));
+        // Declared the other way round
+        serve("orders", service("/orders", "Node", """
+                "Child":{"type":"object","properties":{"parent":{"$ref":"#/components/schemas/Node"}}},
+                "Node":{"type":"object","properties":{"children":{"type":"array","items":{"$ref":"#/components/schemas/Child"}}}}"""));
+
+        JsonNode unified = refresh();
+
+        assertEquals(List.of("Child", "Node"), schemaNames(unified));
+        assertEquals(SCHEMAS + "Child", unified.at("/components/schemas/Node/properties/children/items/$ref").textValue());
+        assertEquals(SCHEMAS + "Node", unified.at("/components/schemas/Child/properties/parent/$ref").textValue());
+    }
+
+    @Test
+    void cycleIsNamespacedWhenOneMemberDiffers() throws IOException {
+        serve("users", service("/users", "Node", """
+                "Node":{"type":"object","properties":{"children":{"type":"array","items":{"$ref":"#/components/schemas/Child"}}}},
+                "Child":{"type":"object","properties":{"parent":{"$ref":"#/components/schemas/Node"}}}"""));
+        serve("orders", service("/orders", "Node", """
+                "Node":{"type":"object","properties":{"children":{"type":"array","items":{"$ref":"#/components/schemas/Child"}}}},
+                "Child":{"type":"object","properties":{"parent":{"$ref":"#/components/schemas/Node"}},"required":["parent"]}"""));
+
+        JsonNode unified = refresh();
+
+        // Node is identical text in both, but reaches a Child that is not
+        assertEquals(List.of("orders.Child", "orders.Node", "users.Child", "users.Node"), schemaNames(unified));
+        assertEquals(SCHEMAS + "orders.Child",
+                unified.at("/components/schemas/orders.Node/properties/children/items/$ref").textValue());
+    }
+
+    @Test
+    void sharedSchemasWithTheSameNameAreToldApart() throws IOException {
+        String small = """
+                "Page":{"type":"object","properties":{"items":{"type":"array"}}}""";
+        String large = """
+                "Page":{"type":"object","properties":{"items":{"type":"array"},"total":{"type":"integer"}}}""";
+        serve("a", service("/a", "Page", small));
+        serve("b", service("/b", "Page", small));
+        serve("c", service("/c", "Page", large));
+        serve("d", service("/d", "Page", large));
+
+        JsonNode unified = refresh();
+
+        List<String> names = schemaNames(unified);
+        assertEquals(2, names.size());
+        assertTrue(names.stream().allMatch(name -> name.matches("Page_[0-9a-f]{8}")), names.toString());
+        assertEquals(ref(unified, "/a/a", "get"), ref(unified, "/b/b", "get"));
+        assertEquals(ref(unified, "/c/c", "get"), ref(unified, "/d/d", "get"));
+        assertNotEquals(ref(unified, "/a/a", "get"), ref(unified, "/c/c", "get"));
+    }
+
+    @Test
+    void referenceToAnUndefinedSchemaIsNotShared() throws IOException {
+        String wrapper = """
+                "Wrapper":{"type":"object","properties":{"value":{"$ref":"#/components/schemas/Missing"}}}""";
+        serve("users", service("/users", "Wrapper", wrapper));
+        serve("orders", service("/orders", "Wrapper", wrapper));
+
+        JsonNode unified = refresh();
+
+        assertEquals(List.of("orders.Wrapper", "users.Wrapper"), schemaNames(unified));
+        assertEquals(SCHEMAS + "users.Missing",
+                unified.at("/components/schemas/users.Wrapper/properties/value/$ref").textValue());
+    }
+
+    @Test
+    void schemaStopsBeingSharedWhenOneServiceChangesIt() throws IOException {
+        String page = """
+                "Page":{"type":"object","properties":{"items":{"type":"array"}}}""";
+        serve("users", service("/users", "Page", page));
+        serve("orders", service("/orders", "Page", page));
+        assertEquals(List.of("Page"), schemaNames(refresh()));
+
+        serve("orders", service("/orders", "Page", """
+                "Page":{"type":"object","properties":{"items":{"type":"array"},"total":{"type":"integer"}}}"""));
+        JsonNode unified = refresh();
+
+        assertEquals(List.of("orders.Page", "users.Page"), schemaNames(unified));
+        // The unchanged service's fragments now point at its own entry
+        assertEquals(SCHEMAS + "users.Page", ref(unified, "/users/users", "get"));
+    }
+
+    /**
+     * A spec with one GET operation whose response refers to the given schema.
+     */
+    private static String service(String path, String responseSchema, String schemas) {
+        return "{\"paths\":{\"" + path + "\":{\"get\":{\"responses\":{\"200\":{\"content\":{\"application/json\":"
+                + "{\"schema\":{\"$ref\":\"" + SCHEMAS + responseSchema + "\"}}}}}}}},"
+                + "\"components\":{\"schemas\":{" + schemas + "}}}";
+    }
+
+    private void serve(String serviceId, String spec) {
+        synchronized (specs) {
+            specs.put(serviceId, spec);
+        }
+    }
+
+    private JsonNode refresh() throws IOException {
+        cache.refresh();
+        return objectMapper.readTree(cache.getDefinitions().unifiedSpec());
+    }
+
+    private static List<String> schemaNames(JsonNode unified) {
+        List<String> names = new ArrayList<>();
+        unified.path("components").path("schemas").fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    /**
+     * The first schema reference in an operation of the unified document.
+     */
+    private static String ref(JsonNode unified, String path, String httpMethod) {
+        JsonNode ref = unified.path("paths").path(path).path(httpMethod).findValue("$ref");
+        return ref == null ? null : ref.textValue();
+    }
+
+    private InstanceRegistry registry() {
+        return (InstanceRegistry) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{InstanceRegistry.class},
+                (proxy, method, arguments) -> "getApplications".equals(method.getName()) ? applications() : null);
+    }
+
+    private Applications applications() {
+        int port = server.getAddress().getPort();
+        Applications applications = new Applications();
+        synchronized (specs) {
+            for (String serviceId : specs.keySet()) {
+                Application app = new Application(serviceId.toUpperCase());
+                app.addInstance(InstanceInfo.Builder.newBuilder()
+                        .setAppName(serviceId)
+                        .setInstanceId(serviceId)
+                        .setHostName("127.0.0.1")
+                        .setIPAddr("127.0.0.1")
+                        .setPort(port)
+                        .setHomePageUrl(null, "http://127.0.0.1:" + port + "/" + serviceId + "/")
+                        .setStatus(InstanceInfo.InstanceStatus.UP)
+                        .build());
+                applications.addApplication(app);
+            }
+        }
+        return applications;
+    }
+}
@@ -0,0 +1,298 @@
+package com.autodocer.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.registry.InstanceRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Peak heap of one aggregation round over a few large specs: a refresh of
+ * {@link AggregatedSpecCache}, fetch included, against the tree-based
+ * pipeline it replaced, reproduced below as it was. Each variant is run in a
+ * JVM of its own, and the smallest -Xmx it completes the round in is
+ * searched for, which is its peak live heap give or take the search step.
+ * <p>
+ * Opt-in, as it takes a minute:
+ * <pre>
+ * mvn -pl autodocer-aggregator test -Dtest=SpecMergeBenchmarkTest -Dautodocer.benchmark=true
+ * </pre>
+ * Add -Dautodocer.benchmark.services=N and -Dautodocer.benchmark.paths=N to
+ * change the fleet (4 services of 3000 paths, about 7 MB each, by default).
+ */
+@EnabledIfSystemProperty(named = "autodocer.benchmark", matches = "true")
+class SpecMergeBenchmarkTest {
+
+    private static final int STEP_MB = 8;
+    private static final String SCHEMAS = "#/components/schemas/";
+
+    @Test
+    void streamingMergeNeedsLessHeapThanTrees() throws Exception {
+        int services = Integer.getInteger("autodocer.benchmark.services", 4);
+        int paths = Integer.getInteger("autodocer.benchmark.paths", 3000);
+        int streaming = minimumHeapMb("streaming", services, paths);
+        int trees = minimumHeapMb("trees", services, paths);
+        System.out.printf("Minimum heap for %d services of %d paths: streaming %d MB, trees %d MB%n",
+                services, paths, streaming, trees);
+        assertTrue(streaming < trees, "streaming merge should need less heap than trees");
+    }
+
+    /**
+     * Bisects the smallest -Xmx, in steps of {@value #STEP_MB} MB, that the variant completes a round in.
+     */
+    private static int minimumHeapMb(String variant, int services, int paths) throws Exception {
+        int fails = STEP_MB;
+        int passes = 1024;
+        if (!completes(variant, services, paths, passes)) {
+            throw new IllegalStateException(variant + " does not complete in " + passes + " MB");
+        }
+        while (passes - fails > STEP_MB) {
+            int mid = (fails + passes) / 2;
+            if (completes(variant, services, paths, mid)) {
+                passes = mid;
+            } else {
+                fails = mid;
+            }
+        }
+        return passes;
+    }
+
+    private static boolean completes(String variant, int services, int paths, int heapMb) throws Exception {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-Xmx" + heapMb + "m", "-XX:+UseSerialGC",
+                "-cp", System.getProperty("java.class.path"), SpecMergeBenchmarkTest.class.getName(),
+                variant, String.valueOf(services), String.valueOf(paths))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        if (!process.waitFor(5, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            return false;
+        }
+        return process.exitValue() == 0;
+    }
+
+    /**
+     * One round of the given variant; exits 0 when it completed.
+     */
+    public static void main(String[] args) throws Exception {
+        String variant = args[0];
+        int services = Integer.parseInt(args[1]);
+        byte[] spec = generateSpec(Integer.parseInt(args[2])).getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, spec.length);
+            exchange.getResponseBody().write(spec);
+            exchange.close();
+        });
+        server.start();
+        int port = server.getAddress().getPort();
+        InstanceRegistry registry = registry(services, port);
+        int status = 1;
+        try (SpecFetcher fetcher = new SpecFetcher(new RestTemplate(), services, 120_000)) {
+            if ("streaming".equals(variant)) {
+                try (AggregatedSpecCache cache = new AggregatedSpecCache(registry, fetcher, 600_000, 120_000)) {
+                    cache.refresh();
+                    status = cache.getDefinitions().unifiedSpec().length() > spec.length ? 0 : 1;
+                }
+            } else {
+                status = mergeTrees(services, port).length() > spec.length ? 0 : 1;
+            }
+        } catch (OutOfMemoryError e) {
+            status = 1;
+        } finally {
+            server.stop(0);
+        }
+        System.exit(status);
+    }
+
+    /**
+     * The pipeline the streaming merge replaced: each body fetched as a String
+     * and parsed into a tree on the fetch thread, the trees kept for the
+     * per-service view, and their operations and schemas deep-copied into one
+     * merged tree that is then serialized.
+     */
+    private static String mergeTrees(int services, int port) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        RestTemplate restTemplate = new RestTemplate();
+        ExecutorService executor = Executors.newFixedThreadPool(services);
+        try {
+            List<Future<JsonNode>> fetches = new ArrayList<>();
+            for (int i = 0; i < services; i++) {
+                String docsUrl = docsUrl(port, i);
+                fetches.add(executor.submit(() -> objectMapper.readTree(restTemplate.getForObject(docsUrl, String.class))));
+            }
+            Map<String, JsonNode> individualSpecs = new TreeMap<>();
+            for (int i = 0; i < services; i++) {
+                individualSpecs.put("svc" + i, fetches.get(i).get());
+            }
+            ObjectNode mergedPaths = new ObjectNode(JsonNodeFactory.instance, new TreeMap<>());
+            ObjectNode mergedSchemas = new ObjectNode(JsonNodeFactory.instance, new TreeMap<>());
+            individualSpecs.forEach((serviceId, root) -> mergeService(serviceId, root, mergedPaths, mergedSchemas));
+
+            ObjectNode mergedRoot = objectMapper.createObjectNode();
+            mergedRoot.put("openapi", "3.0.0");
+            ObjectNode infoNode = mergedRoot.putObject("info");
+            infoNode.put("title", "Aggregated API Documentation");
+            infoNode.put("version", "1.0.0");
+            mergedRoot.set("paths", mergedPaths);
+            mergedRoot.putObject("components").set("schemas", mergedSchemas);
+            String unified = objectMapper.writeValueAsString(mergedRoot);
+            return individualSpecs.size() == services ? unified : "";
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void mergeService(String serviceId, JsonNode serviceRoot, ObjectNode mergedPaths,
+                                     ObjectNode mergedSchemas) {
+        for (Map.Entry<String, JsonNode> pathEntry : serviceRoot.path("paths").properties()) {
+            String mergedPath = ("/" + serviceId + pathEntry.getKey()).replaceAll("/+", "/");
+            ObjectNode mergedPathItemNode = mergedPaths.has(mergedPath)
+                    ? (ObjectNode) mergedPaths.get(mergedPath) : mergedPaths.putObject(mergedPath);
+            for (Map.Entry<String, JsonNode> opEntry : pathEntry.getValue().properties()) {
+                if (opEntry.getValue().isObject()) {
+                    ObjectNode operationNode = (ObjectNode) opEntry.getValue().deepCopy();
+                    operationNode.put("operationId", serviceId + "_" + operationNode.path("operationId").asText(""));
+                    operationNode.putArray("tags").add(serviceId);
+                    rewriteSchemaRefs(operationNode, serviceId);
+                    mergedPathItemNode.set(opEntry.getKey(), operationNode);
+                }
+            }
+        }
+        for (Map.Entry<String, JsonNode> schemaEntry : serviceRoot.path("components").path("schemas").properties()) {
+            JsonNode schemaNode = schemaEntry.getValue().deepCopy();
+            rewriteSchemaRefs(schemaNode, serviceId);
+            mergedSchemas.set(serviceId + "." + schemaEntry.getKey(), schemaNode);
+        }
+    }
+
+    private static void rewriteSchemaRefs(JsonNode node, String serviceId) {
+        if (node instanceof ObjectNode objectNode) {
+            JsonNode ref = objectNode.get("$ref");
+            if (ref != null && ref.isTextual() && ref.textValue().startsWith(SCHEMAS)) {
+                objectNode.put("$ref", SCHEMAS + serviceId + "." + ref.textValue().substring(SCHEMAS.length()));
+            }
+        }
+        for (JsonNode child : node) {
+            rewriteSchemaRefs(child, serviceId);
+        }
+    }
+
+    private static String docsUrl(int port, int service) {
+        return "http://127.0.0.1:" + port + "/svc" + service + "/autodocer/api-docs";
+    }
+
+    private static InstanceRegistry registry(int services, int port) {
+        Applications applications = new Applications();
+        for (int i = 0; i < services; i++) {
+            Application app = new Application("SVC" + i);
+            app.addInstance(InstanceInfo.Builder.newBuilder()
+                    .setAppName("svc" + i)
+                    .setInstanceId("svc" + i)
+                    .setHostName("127.0.0.1")
+                    .setIPAddr("127.0.0.1")
+                    .setPort(port)
+                    .setHomePageUrl(null, "http://127.0.0.1:" + port + "/svc" + i + "/")
+                    .setStatus(InstanceInfo.InstanceStatus.UP)
+                    .build());
+            applications.addApplication(app);
+        }
+        return (InstanceRegistry) Proxy.newProxyInstance(SpecMergeBenchmarkTest.class.getClassLoader(),
+                new Class<?>[]{InstanceRegistry.class},
+                (proxy, method, arguments) -> "getApplications".equals(method.getName()) ? applications : null);
+    }
+
+    /**
+     * A spec with the given number of paths, each with a GET and a POST, and
+     * a schema per path: about 2.3 KB per path.
+     */
+    static String generateSpec(int paths) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("openapi", "3.0.0");
+            generator.writeObjectFieldStart("paths");
+            for (int i = 0; i < paths; i++) {
+                generator.writeObjectFieldStart("/resources" + i + "/{id}");
+                for (String method : List.of("get", "post")) {
+                    generator.writeObjectFieldStart(method);
+                    generator.writeStringField("operationId", method + "Resource" + i);
+                    generator.writeStringField("summary", "Works on resource " + i + " with the " + method + " method");
+                    generator.writeStringField("description", "A longer description of what " + method
+                            + " does to resource " + i + ", as an AI-enriched spec would have it.");
+                    generator.writeArrayFieldStart("parameters");
+                    generator.writeStartObject();
+                    generator.writeStringField("name", "id");
+                    generator.writeStringField("in", "path");
+                    generator.writeBooleanField("required", true);
+                    generator.writeObjectFieldStart("schema");
+                    generator.writeStringField("type", "integer");
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndArray();
+                    generator.writeObjectFieldStart("responses");
+                    generator.writeObjectFieldStart("200");
+                    generator.writeStringField("description", "OK");
+                    generator.writeObjectFieldStart("content");
+                    generator.writeObjectFieldStart("application/json");
+                    generator.writeObjectFieldStart("schema");
+                    generator.writeStringField("$ref", "#/components/schemas/Resource" + i);
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("components");
+            generator.writeObjectFieldStart("schemas");
+            for (int i = 0; i < paths; i++) {
+                generator.writeObjectFieldStart("Resource" + i);
+                generator.writeStringField("type", "object");
+                generator.writeObjectFieldStart("properties");
+                for (int field = 0; field < 10; field++) {
+                    generator.writeObjectFieldStart("field" + field);
+                    generator.writeStringField("type", field % 2 == 0 ? "string" : "integer");
+                    generator.writeStringField("description", "Field " + field + " of resource " + i);
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        return out.toString();
+    }
+}
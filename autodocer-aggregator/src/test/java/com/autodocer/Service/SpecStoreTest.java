@@ -0,0 +1,123 @@
+package com.autodocer.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reloading, torn-tail recovery and compaction of the on-disk spec log.
+ */
+class SpecStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static SpecStore.StoredSpec spec(String serviceId, String body) {
+        return new SpecStore.StoredSpec(serviceId, "http://" + serviceId + "/autodocer/api-docs", body,
+                "\"" + body.hashCode() + "\"", null, "hash-" + body.length(), Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    @Test
+    void reloadsTheNewestRecordOfEachService() {
+        Path file = directory.resolve("specs.log");
+        try (SpecStore store = new SpecStore(file)) {
+            store.load();
+            store.put(spec("users", "{\"v\":1}"));
+            store.put(spec("orders", "{\"v\":1}"));
+            store.put(spec("users", "{\"v\":2}"));
+        }
+
+        Map<String, SpecStore.StoredSpec> loaded = new SpecStore(file).load();
+
+        assertEquals(Map.of("users", spec("users", "{\"v\":2}"), "orders", spec("orders", "{\"v\":1}")), loaded);
+        assertNull(loaded.get("users").lastModified());
+    }
+
+    @Test
+    void removedServicesAreNotRestored() {
+        Path file = directory.resolve("specs.log");
+        try (SpecStore store = new SpecStore(file)) {
+            store.load();
+            store.put(spec("users", "{}"));
+            store.put(spec("orders", "{}"));
+            store.remove("orders");
+        }
+
+        assertEquals(Map.of("users", spec("users", "{}")), new SpecStore(file).load());
+    }
+
+    @Test
+    void cutsOffATornTailAndAppendsAfterTheLastWholeRecord() throws IOException {
+        Path file = directory.resolve("specs.log");
+        try (SpecStore store = new SpecStore(file)) {
+            store.load();
+            store.put(spec("users", "{\"v\":1}"));
+        }
+        long whole = Files.size(file);
+        // A crash halfway through the body of the next record
+        Files.writeString(file, "{\"s\":\"orders\",\"n\":100}\n{\"paths\":", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        try (SpecStore store = new SpecStore(file)) {
+            assertEquals(Map.of("users", spec("users", "{\"v\":1}")), store.load());
+            assertEquals(whole, Files.size(file));
+            store.put(spec("orders", "{\"v\":1}"));
+        }
+
+        assertEquals(Map.of("users", spec("users", "{\"v\":1}"), "orders", spec("orders", "{\"v\":1}")),
+                new SpecStore(file).load());
+    }
+
+    @Test
+    void cutsOffATornHeader() throws IOException {
+        Path file = directory.resolve("specs.log");
+        try (SpecStore store = new SpecStore(file)) {
+            store.load();
+            store.put(spec("users", "{}"));
+        }
+        long whole = Files.size(file);
+        Files.writeString(file, "{\"s\":\"ord", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(Map.of("users", spec("users", "{}")), new SpecStore(file).load());
+        assertEquals(whole, Files.size(file));
+    }
+
+    @Test
+    void compactsOnceMostlySuperseded() throws IOException {
+        Path file = directory.resolve("specs.log");
+        String large = "{\"x\":\"" + "a".repeat(400_000) + "\"}";
+        try (SpecStore store = new SpecStore(file)) {
+            store.load();
+            store.put(spec("users", large));
+            store.put(spec("users", large + " "));
+            store.compactIfNeeded();
+            assertTrue(Files.size(file) > 2L * large.length(), "files under 1 MB are left alone");
+
+            store.put(spec("orders", large));
+            store.put(spec("users", large + "  "));
+            store.compactIfNeeded();
+            assertTrue(Files.size(file) > 4L * large.length(), "half live is not mostly superseded");
+
+            store.put(spec("users", large + "   "));
+            store.compactIfNeeded();
+            assertTrue(Files.size(file) < 2L * large.length() + 1_000, "compacted to the live records");
+
+            // Appends continue on the compacted file
+            store.put(spec("orders", "{\"v\":2}"));
+        }
+
+        assertEquals(Map.of("users", spec("users", large + "   "), "orders", spec("orders", "{\"v\":2}")),
+                new SpecStore(file).load());
+    }
+}
@@ -3,6 +3,8 @@ package com.autodocer.AiDescription;
 import com.autodocer.AiDescription.AiDescriptionService; // Ensure this import is correct
 import com.autodocer.DTO.EndpointInfo;                  // Ensure this import is correct
 import com.autodocer.DTO.ExampleInfo;                   // Ensure this import is correct
+import com.autodocer.DTO.AiCacheStats;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -13,10 +15,16 @@ import java.util.List;
 public class AiController {
 
     private final AiDescriptionService aiService;
+    private final AiDescriptionCache descriptionCache; // null when no AI cache is configured
 
     // Inject the existing AiDescriptionService (which now has both methods)
     public AiController(AiDescriptionService aiService) {
+        this(aiService, null);
+    }
+
+    public AiController(AiDescriptionService aiService, AiDescriptionCache descriptionCache) {
         this.aiService = aiService;
+        this.descriptionCache = descriptionCache;
     }
 
     @PostMapping(value = "/generate-examples", consumes = "application/json", produces = "application/json")
@@ -31,4 +39,24 @@ public class AiController {
 
         return aiService.generateExamples(endpointInfo,serverUrl);
     }
-}
\ No newline at end of file
+
+    @GetMapping(value = "/cache", produces = "application/json")
+    public ResponseEntity<AiCacheStats> getCacheStats() {
+        if (descriptionCache == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(descriptionCache.getStats());
+    }
+
+    /**
+     * Drops every cached AI description so the next scan asks the AI service again.
+     */
+    @DeleteMapping(value = "/cache", produces = "application/json")
+    public ResponseEntity<AiCacheStats> purgeCache() {
+        if (descriptionCache == null) {
+            return ResponseEntity.notFound().build();
+        }
+        descriptionCache.purge();
+        return ResponseEntity.ok(descriptionCache.getStats());
+    }
+}
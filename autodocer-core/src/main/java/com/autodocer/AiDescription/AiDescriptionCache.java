@@ -0,0 +1,269 @@
+package com.autodocer.AiDescription;
+
+import com.autodocer.DTO.AiCacheStats;
+import com.autodocer.DTO.AiGenerationResult;
+import com.autodocer.DTO.EndpointContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk-backed cache of AI-generated endpoint descriptions, keyed by a hash of
+ * the {@link EndpointContext}. An endpoint whose method name, HTTP method, path,
+ * parameters and response type are unchanged since the last run is described
+ * from the cache instead of calling the AI service again.
+ * <p>
+ * Entries are stored as an append-only file of JSON lines that is read once,
+ * sequentially, at startup. The in-memory map is bounded and evicts the least
+ * recently used entry; the file is compacted when it holds too many stale lines.
+ * <p>
+ * All file writes happen on one background thread, in the order they were
+ * made, so that callers (typically the event loop that delivered an AI
+ * response) only ever update the in-memory map.
+ */
+public class AiDescriptionCache {
+
+    // Bump when the prompt changes in a way that should invalidate old descriptions
+    private static final String KEY_VERSION = "v1";
+
+    private final Path file;
+    private final int maxEntries;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LinkedHashMap<String, AiGenerationResult> entries;
+    private final ExecutorService fileWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autodocer-ai-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched by the file writer thread once loaded
+    private BufferedWriter writer;
+    private int linesInFile;
+    private long hits;
+    private long misses;
+
+    public AiDescriptionCache(Path file, int maxEntries) {
+        this.file = file;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AiGenerationResult> eldest) {
+                return size() > AiDescriptionCache.this.maxEntries;
+            }
+        };
+        load();
+    }
+
+    public synchronized AiGenerationResult get(EndpointContext context) {
+        AiGenerationResult result = entries.get(key(context));
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    public void put(EndpointContext context, AiGenerationResult result) {
+        if (result == null || result.failed()) {
+            return;
+        }
+        String key = key(context);
+        synchronized (this) {
+            if (result.equals(entries.get(key))) {
+                return;
+            }
+            entries.put(key, result);
+        }
+        write(() -> {
+            append(key, result);
+            Map<String, AiGenerationResult> live = liveEntriesIfStale();
+            if (live != null) {
+                compact(live);
+            }
+        });
+    }
+
+    /**
+     * Removes every entry from memory and deletes the backing file.
+     * @return The number of entries that were removed.
+     */
+    public synchronized int purge() {
+        int removed = entries.size();
+        entries.clear();
+        write(() -> {
+            closeWriter();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("--- [AutoDocER] Could not delete AI description cache " + file + ": " + e.getMessage());
+            }
+            linesInFile = 0;
+        });
+        System.out.println("--- [AutoDocER] Purged " + removed + " cached AI descriptions ---");
+        return removed;
+    }
+
+    public synchronized AiCacheStats getStats() {
+        return new AiCacheStats(file.toString(), entries.size(), maxEntries, hits, misses);
+    }
+
+    /**
+     * Waits for pending writes to reach the file, then closes it.
+     */
+    public void close() {
+        write(this::closeWriter);
+        fileWriter.shutdown();
+        try {
+            if (!fileWriter.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("--- [AutoDocER] Gave up waiting for AI description cache writes to " + file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stable key for an endpoint context. Fields are separated by characters
+     * that cannot appear in Java identifiers or paths, so distinct contexts
+     * cannot collapse into the same string.
+     */
+    static String key(EndpointContext context) {
+        StringBuilder canonical = new StringBuilder(KEY_VERSION)
+                .append('\u001e').append(context.methodName())
+                .append('\u001e').append(context.httpMethod())
+                .append('\u001e').append(context.path())
+                .append('\u001e');
+        for (String parameter : context.parameters()) {
+            canonical.append(parameter).append('\u001f');
+        }
+        canonical.append('\u001e').append(context.responseType());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                linesInFile++;
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    entries.put(node.path("k").asText(),
+                            new AiGenerationResult(node.path("s").asText(), node.path("d").asText()));
+                } catch (IOException e) {
+                    // A torn last line after a crash is expected; skip it
+                    System.err.println("--- [AutoDocER] Skipping unreadable AI cache line in " + file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("--- [AutoDocER] Could not read AI description cache " + file + ": " + e.getMessage());
+        }
+        System.out.println("--- [AutoDocER] Loaded " + entries.size() + " cached AI descriptions from " + file
+                + " in " + (System.nanoTime() - start) / 1_000_000 + " ms ---");
+    }
+
+    private void write(Runnable task) {
+        try {
+            fileWriter.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Closed; the entry stays in memory only
+        }
+    }
+
+    /**
+     * @return A copy of the entries when the file holds too many stale lines, else null.
+     */
+    private synchronized Map<String, AiGenerationResult> liveEntriesIfStale() {
+        return linesInFile > 2 * Math.max(entries.size(), 64) ? new LinkedHashMap<>(entries) : null;
+    }
+
+    private void append(String key, AiGenerationResult result) {
+        try {
+            if (writer == null) {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(toLine(key, result));
+            writer.newLine();
+            writer.flush();
+            linesInFile++;
+        } catch (IOException e) {
+            System.err.println("--- [AutoDocER] Could not write AI description cache " + file + ": " + e.getMessage());
+            closeWriter();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live entries, replacing it atomically.
+     */
+    private void compact(Map<String, AiGenerationResult> live) {
+        closeWriter();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, AiGenerationResult> entry : live.entrySet()) {
+                    out.write(toLine(entry.getKey(), entry.getValue()));
+                    out.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            linesInFile = live.size();
+        } catch (IOException e) {
+            System.err.println("--- [AutoDocER] Could not compact AI description cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private String toLine(String key, AiGenerationResult result) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("k", key);
+        node.put("s", result.summary());
+        node.put("d", result.description());
+        return objectMapper.writeValueAsString(node);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Nothing left to flush that we could recover
+            }
+            writer = null;
+        }
+    }
+}
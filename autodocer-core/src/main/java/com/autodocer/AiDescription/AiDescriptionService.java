@@ -5,11 +5,44 @@ import com.autodocer.DTO.EndpointContext;
 import com.autodocer.DTO.EndpointInfo;
 import com.autodocer.DTO.ExampleInfo;
 
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
 import java.util.List;
 
 public interface AiDescriptionService {
 
     AiGenerationResult generateDescription(EndpointContext context) ;
 
+    /**
+     * Describes several endpoints at once. The returned list is in the same order
+     * as {@code contexts}. Implementations that can send many endpoints in a single
+     * request should override this; the default describes them one by one.
+     */
+    default List<AiGenerationResult> generateDescriptions(List<EndpointContext> contexts) {
+        List<AiGenerationResult> results = new ArrayList<>(contexts.size());
+        for (EndpointContext context : contexts) {
+            results.add(generateDescription(context));
+        }
+        return results;
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateDescription}. The default runs the
+     * blocking call on the bounded elastic scheduler; clients with a reactive
+     * transport should override it.
+     */
+    default Mono<AiGenerationResult> generateDescriptionAsync(EndpointContext context) {
+        return Mono.fromCallable(() -> generateDescription(context)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateDescriptions}.
+     */
+    default Mono<List<AiGenerationResult>> generateDescriptionsAsync(List<EndpointContext> contexts) {
+        return Mono.fromCallable(() -> generateDescriptions(contexts)).subscribeOn(Schedulers.boundedElastic());
+    }
+
     List<ExampleInfo> generateExamples(EndpointInfo endpoint,String serverUrl);
 }
@@ -0,0 +1,219 @@
+package com.autodocer.AiDescription;
+
+import com.autodocer.DocumentationParser;
+import com.autodocer.DocumentationParser.ApiDocumentationResult;
+import com.autodocer.DTO.AiGenerationResult;
+import com.autodocer.DTO.ControllerInfo;
+import com.autodocer.DTO.EndpointContext;
+import com.autodocer.DTO.EndpointInfo;
+import com.autodocer.DTO.EnrichmentProgress;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Generates AI descriptions for an already published spec in the background.
+ * The spec is first built with rule-based descriptions; this service then asks
+ * the AI for each batch of endpoints (with bounded concurrency, using the
+ * non-blocking {@link AiDescriptionService#generateDescriptionsAsync}) and hands
+ * the results to a publisher as they arrive. Results are collected for a
+ * short window and handed over together, so that many batches arriving close
+ * together cost one re-serialization of the spec rather than one each.
+ */
+public class AiEnrichmentService {
+
+    private final AiDescriptionService aiService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int concurrency;
+    private final long publishWindowMillis;
+    private final Scheduler publishScheduler;
+
+    private volatile Run currentRun;
+
+    public AiEnrichmentService(AiDescriptionService aiService, boolean enabled, int concurrency) {
+        this(aiService, enabled, concurrency, 1);
+    }
+
+    /**
+     * @param batchSize Number of endpoints handed to
+     *                  {@link AiDescriptionService#generateDescriptions} in one task.
+     */
+    public AiEnrichmentService(AiDescriptionService aiService, boolean enabled, int concurrency, int batchSize) {
+        this(aiService, enabled, concurrency, batchSize, 0);
+    }
+
+    /**
+     * @param publishWindowMillis How long results are collected after the first
+     *                            of them arrives before they are published together.
+     */
+    public AiEnrichmentService(AiDescriptionService aiService, boolean enabled, int concurrency, int batchSize,
+                               long publishWindowMillis) {
+        this.aiService = aiService;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.publishWindowMillis = Math.max(0, publishWindowMillis);
+        // Publishing re-serializes the spec, so keep it off the HTTP client's event loop
+        this.publishScheduler = enabled
+                ? Schedulers.newBoundedElastic(1, Integer.MAX_VALUE, "autodocer-ai-enrichment", 60, true)
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts enriching every endpoint of the given result, cancelling any run
+     * that is still in progress for an older result.
+     * @param publisher Receives batches of results keyed by {@link #endpointKey}.
+     */
+    public synchronized void start(ApiDocumentationResult result, Consumer<Map<String, AiGenerationResult>> publisher) {
+        if (!enabled) {
+            return;
+        }
+        Run previous = currentRun;
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        List<Map.Entry<String, EndpointInfo>> endpoints = new ArrayList<>();
+        for (ControllerInfo controller : result.controllers()) {
+            for (EndpointInfo endpoint : controller.endpoints()) {
+                endpoints.add(Map.entry(endpointKey(controller.className(), endpoint), endpoint));
+            }
+        }
+
+        Run run = new Run(endpoints.size(), publisher);
+        currentRun = run;
+        System.out.println("--- [AutoDocER] Starting background AI enrichment for " + endpoints.size() + " endpoints ---");
+        List<List<Map.Entry<String, EndpointInfo>>> batches = new ArrayList<>();
+        for (int from = 0; from < endpoints.size(); from += batchSize) {
+            batches.add(endpoints.subList(from, Math.min(from + batchSize, endpoints.size())));
+        }
+        run.subscription = Flux.fromIterable(batches)
+                .flatMap(run::enrich, concurrency)
+                .subscribe();
+    }
+
+    public EnrichmentProgress getProgress() {
+        Run run = currentRun;
+        if (run == null) {
+            return new EnrichmentProgress(enabled, 0, 0, 0, 0);
+        }
+        int enriched = run.enriched.get();
+        int failed = run.failed.get();
+        return new EnrichmentProgress(enabled, run.total, enriched, run.total - enriched - failed, failed);
+    }
+
+    /**
+     * Identifies an endpoint within a spec independently of its descriptions.
+     */
+    public static String endpointKey(String controllerName, EndpointInfo endpoint) {
+        return controllerName + " " + endpoint.httpMethod() + " " + endpoint.path() + " " + endpoint.methodName();
+    }
+
+    public void shutdown() {
+        Run run = currentRun;
+        if (run != null) {
+            run.cancel();
+        }
+        if (publishScheduler != null) {
+            publishScheduler.dispose();
+        }
+    }
+
+    private class Run {
+        private final int total;
+        private final Consumer<Map<String, AiGenerationResult>> publisher;
+        private final Queue<Map.Entry<String, AiGenerationResult>> arrivals = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger enriched = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicBoolean publishScheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile Disposable subscription;
+
+        Run(int total, Consumer<Map<String, AiGenerationResult>> publisher) {
+            this.total = total;
+            this.publisher = publisher;
+        }
+
+        Mono<Void> enrich(List<Map.Entry<String, EndpointInfo>> batch) {
+            if (cancelled) {
+                return Mono.empty();
+            }
+            List<EndpointContext> contexts = new ArrayList<>(batch.size());
+            for (Map.Entry<String, EndpointInfo> entry : batch) {
+                contexts.add(DocumentationParser.toEndpointContext(entry.getValue()));
+            }
+
+            return aiService.generateDescriptionsAsync(contexts)
+                    .publishOn(publishScheduler)
+                    .doOnNext(results -> {
+                        int succeeded = 0;
+                        for (int i = 0; i < batch.size(); i++) {
+                            AiGenerationResult result = i < results.size() ? results.get(i) : null;
+                            if (result == null || result.failed()) {
+                                failed.incrementAndGet();
+                            } else {
+                                arrivals.add(Map.entry(batch.get(i).getKey(), result));
+                                succeeded++;
+                            }
+                        }
+                        // Counted before publishing, so the status of a published version includes them
+                        enriched.addAndGet(succeeded);
+                        if (succeeded > 0 && publishScheduled.compareAndSet(false, true)) {
+                            publishScheduler.schedule(this::publishArrivals, publishWindowMillis, TimeUnit.MILLISECONDS);
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        System.err.println("--- [AutoDocER] AI enrichment failed for " + batch.size() + " endpoints: " + e.getMessage());
+                        failed.addAndGet(batch.size());
+                        return Mono.empty();
+                    })
+                    .then();
+        }
+
+        /**
+         * Drains everything that has arrived so far into one batch. Results
+         * that arrive while a batch is being published schedule the next drain.
+         */
+        private synchronized void publishArrivals() {
+            publishScheduled.set(false);
+            if (cancelled) {
+                return;
+            }
+            Map<String, AiGenerationResult> batch = new LinkedHashMap<>();
+            Map.Entry<String, AiGenerationResult> next;
+            while ((next = arrivals.poll()) != null) {
+                batch.put(next.getKey(), next.getValue());
+            }
+            if (!batch.isEmpty()) {
+                publisher.accept(batch);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Disposable current = subscription;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
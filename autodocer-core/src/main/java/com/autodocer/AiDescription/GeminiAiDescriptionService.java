@@ -6,25 +6,37 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class GeminiAiDescriptionService implements AiDescriptionService {
 
-    private final WebClient webClient;
+    private final GeminiClient geminiClient;
     private final ObjectMapper objectMapper;
-    private final String apiKey;
-
-    // Base URL without the key parameter (use v1, not v1beta)
-    private static final String GEMINI_BASE_URL =
-            "https://generativelanguage.googleapis.com/v1/models/";
+    private final AiDescriptionCache descriptionCache; // may be null
+    private final int batchSize;
 
     public GeminiAiDescriptionService(String apiKey, WebClient.Builder webClientBuilder) {
+        this(apiKey, webClientBuilder, null, 1);
+    }
+
+    public GeminiAiDescriptionService(String apiKey, WebClient.Builder webClientBuilder,
+                                      AiDescriptionCache descriptionCache, int batchSize) {
+        this(apiKey, webClientBuilder, descriptionCache, batchSize, GeminiClient.Settings.defaults());
+    }
+
+    public GeminiAiDescriptionService(String apiKey, WebClient.Builder webClientBuilder,
+                                      AiDescriptionCache descriptionCache, int batchSize,
+                                      GeminiClient.Settings clientSettings) {
         if (apiKey == null || apiKey.trim().isEmpty()) {
             throw new IllegalArgumentException("Gemini API key cannot be null or empty");
         }
@@ -32,61 +44,166 @@ public class GeminiAiDescriptionService implements AiDescriptionService {
         System.out.println("--- [AutoDocER] Initializing Gemini with API key: " +
                 apiKey.substring(0, Math.min(10, apiKey.length())) + "...");
 
-        this.apiKey = apiKey;
-        this.webClient = webClientBuilder.baseUrl(GEMINI_BASE_URL).build();
+        this.geminiClient = new GeminiClient(apiKey, webClientBuilder, clientSettings);
         this.objectMapper = new ObjectMapper();
+        this.descriptionCache = descriptionCache;
+        this.batchSize = Math.max(1, batchSize);
     }
 
     @Override
     public AiGenerationResult generateDescription(EndpointContext context) {
-        try {
-            String prompt = buildPrompt(context);
-            String requestBody = buildGeminiRequest(prompt);
-
-            // Corrected URI construction with gemini-2.5-flash
-            String jsonResponse = webClient.post()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("gemini-2.5-flash:generateContent")
-                            .queryParam("key", apiKey)
-                            .build())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(errorBody -> {
-                                        System.err.println("--- [AutoDocER] API Error Response: " + errorBody);
-                                        return clientResponse.createException();
-                                    }))
-                    .bodyToMono(String.class)
-                    .block();
-
-            return parseGeminiResponse(jsonResponse);
+        return generateDescriptionAsync(context).block();
+    }
 
-        } catch (Exception e) {
-            System.err.println("--- [AutoDocER] ERROR calling AI service: " + e.getMessage());
-            e.printStackTrace(); // Add stack trace for debugging
-            return new AiGenerationResult(
-                    "Error generating summary",
-                    "Could not generate AI description: " + e.getMessage()
-            );
+    @Override
+    public Mono<AiGenerationResult> generateDescriptionAsync(EndpointContext context) {
+        AiGenerationResult cached = descriptionCache != null ? descriptionCache.get(context) : null;
+        if (cached != null) {
+            return Mono.just(cached);
         }
+        return Mono.fromCallable(() -> buildGeminiRequest(buildPrompt(context)))
+                .flatMap(geminiClient::generateContent)
+                .map(jsonResponse -> {
+                    try {
+                        return parseGeminiResponse(jsonResponse);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                })
+                .doOnNext(result -> {
+                    if (descriptionCache != null) {
+                        descriptionCache.put(context, result);
+                    }
+                })
+                .onErrorResume(e -> {
+                    System.err.println("--- [AutoDocER] ERROR calling AI service: " + e.getMessage());
+                    return Mono.just(AiGenerationResult.error(e.getMessage()));
+                });
+    }
+
+    @Override
+    public List<AiGenerationResult> generateDescriptions(List<EndpointContext> contexts) {
+        return generateDescriptionsAsync(contexts).block();
+    }
+
+    /**
+     * Describes several endpoints with one request per {@code batchSize} endpoints.
+     * Cached endpoints are answered without a request, and entries the model
+     * leaves out or answers in an unreadable form fall back to a single call.
+     */
+    @Override
+    public Mono<List<AiGenerationResult>> generateDescriptionsAsync(List<EndpointContext> contexts) {
+        return Mono.defer(() -> describeAll(contexts));
+    }
+
+    private Mono<List<AiGenerationResult>> describeAll(List<EndpointContext> contexts) {
+        AiGenerationResult[] results = new AiGenerationResult[contexts.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < contexts.size(); i++) {
+            AiGenerationResult cached = descriptionCache != null ? descriptionCache.get(contexts.get(i)) : null;
+            if (cached != null) {
+                results[i] = cached;
+            } else {
+                pending.add(i);
+            }
+        }
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            chunks.add(pending.subList(from, Math.min(from + batchSize, pending.size())));
+        }
+        // Chunks run one after another; the client's pool and rate limiter pace the requests
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> (chunk.size() > 1 ? requestBatch(chunk, contexts) : Mono.just(Map.<Integer, AiGenerationResult>of()))
+                        .flatMapMany(answered -> Flux.fromIterable(chunk)
+                                .concatMap(index -> {
+                                    AiGenerationResult result = answered.get(index);
+                                    if (result == null) {
+                                        // generateDescriptionAsync consults and fills the cache itself
+                                        return generateDescriptionAsync(contexts.get(index))
+                                                .doOnNext(single -> results[index] = single);
+                                    }
+                                    if (descriptionCache != null) {
+                                        descriptionCache.put(contexts.get(index), result);
+                                    }
+                                    results[index] = result;
+                                    return Mono.just(result);
+                                })))
+                .then(Mono.fromCallable(() -> Arrays.asList(results)));
+    }
+
+    private Mono<Map<Integer, AiGenerationResult>> requestBatch(List<Integer> ids, List<EndpointContext> contexts) {
+        return Mono.fromCallable(() -> {
+                    System.out.println("--- [AutoDocER] Generating descriptions for " + ids.size() + " endpoints in one request");
+                    return buildGeminiRequest(buildBatchPrompt(ids, contexts));
+                })
+                .flatMap(geminiClient::generateContent)
+                .map(jsonResponse -> {
+                    Map<Integer, AiGenerationResult> answered = new HashMap<>();
+                    try {
+                        JsonNode items = objectMapper.readTree(extractResponseText(jsonResponse));
+                        if (!items.isArray()) {
+                            throw new Exception("Batch response was not a JSON array");
+                        }
+                        for (JsonNode item : items) {
+                            int id = item.path("id").asInt(-1);
+                            String summary = item.path("summary").textValue();
+                            String description = item.path("description").textValue();
+                            if (ids.contains(id) && summary != null && !summary.isEmpty()
+                                    && description != null && !description.isEmpty()) {
+                                answered.put(id, new AiGenerationResult(summary, description));
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e.getMessage(), e);
+                    }
+                    return answered;
+                })
+                .onErrorResume(e -> {
+                    System.err.println("--- [AutoDocER] ERROR in batched AI request, falling back to single requests: " + e.getMessage());
+                    return Mono.just(new HashMap<>());
+                });
     }
 
     private String buildPrompt(EndpointContext context) {
-        return String.format(
+        return "You are an expert technical writer for API documentation. " +
+                "Your task is to generate a 'summary' and 'description' for a REST API endpoint. " +
+                "The 'summary' must be a single, concise sentence starting with a verb (e.g., 'Retrieves...', 'Creates...'). " +
+                "The 'description' should be a brief, human-readable paragraph (1-3 sentences) explaining what the endpoint does. " +
+                "Respond ONLY with a valid JSON object in the format: {\"summary\": \"...\", \"description\": \"...\"}\n\n" +
+                "--- Endpoint Details ---\n" +
+                formatEndpointDetails(context) +
+                "--- End Details ---";
+    }
+
+    /**
+     * Builds one prompt describing several endpoints. The shared instructions are
+     * sent once and each endpoint is tagged with an id so answers can be matched back.
+     */
+    private String buildBatchPrompt(List<Integer> ids, List<EndpointContext> contexts) {
+        StringBuilder prompt = new StringBuilder(
                 "You are an expert technical writer for API documentation. " +
-                        "Your task is to generate a 'summary' and 'description' for a REST API endpoint. " +
-                        "The 'summary' must be a single, concise sentence starting with a verb (e.g., 'Retrieves...', 'Creates...'). " +
-                        "The 'description' should be a brief, human-readable paragraph (1-3 sentences) explaining what the endpoint does. " +
-                        "Respond ONLY with a valid JSON object in the format: {\"summary\": \"...\", \"description\": \"...\"}\n\n" +
-                        "--- Endpoint Details ---\n" +
-                        "Method Name: %s\n" +
+                "Your task is to generate a 'summary' and 'description' for EACH of the REST API endpoints below. " +
+                "The 'summary' must be a single, concise sentence starting with a verb (e.g., 'Retrieves...', 'Creates...'). " +
+                "The 'description' should be a brief, human-readable paragraph (1-3 sentences) explaining what the endpoint does. " +
+                "Respond ONLY with a valid JSON array containing one object per endpoint, in the format: " +
+                "[{\"id\": 0, \"summary\": \"...\", \"description\": \"...\"}]. " +
+                "The 'id' must be copied from the endpoint it describes.\n\n");
+        for (Integer id : ids) {
+            prompt.append("--- Endpoint id=").append(id).append(" ---\n")
+                    .append(formatEndpointDetails(contexts.get(id)));
+        }
+        prompt.append("--- End Details ---");
+        return prompt.toString();
+    }
+
+    private String formatEndpointDetails(EndpointContext context) {
+        return String.format(
+                "Method Name: %s\n" +
                         "HTTP Method: %s\n" +
                         "Path: %s\n" +
                         "Parameters: %s\n" +
-                        "Response Type: %s\n" +
-                        "--- End Details ---",
+                        "Response Type: %s\n",
                 context.methodName(),
                 context.httpMethod(),
                 context.path(),
@@ -117,7 +234,11 @@ public class GeminiAiDescriptionService implements AiDescriptionService {
         }
     }
 
-    private AiGenerationResult parseGeminiResponse(String jsonResponse) throws Exception {
+    /**
+     * Pulls the model's text answer out of a Gemini response, stripping any
+     * markdown code fences around it.
+     */
+    private String extractResponseText(String jsonResponse) throws Exception {
         System.out.println("--- [AutoDocER] Gemini Response: " + jsonResponse);
 
         JsonNode root = objectMapper.readTree(jsonResponse);
@@ -153,13 +274,18 @@ public class GeminiAiDescriptionService implements AiDescriptionService {
         text = text.trim();
 
         System.out.println("--- [AutoDocER] Extracted text: " + text);
+        return text;
+    }
+
+    private AiGenerationResult parseGeminiResponse(String jsonResponse) throws Exception {
+        String text = extractResponseText(jsonResponse);
 
         // Parse the JSON from the text
         JsonNode aiJson = objectMapper.readTree(text);
-        String summary = aiJson.path("summary").asText("");
-        String description = aiJson.path("description").asText("");
+        String summary = aiJson.path("summary").textValue();
+        String description = aiJson.path("description").textValue();
 
-        if (summary.isEmpty() || description.isEmpty()) {
+        if (summary == null || summary.isEmpty() || description == null || description.isEmpty()) {
             throw new Exception("Failed to extract summary or description from AI response");
         }
 
@@ -178,25 +304,8 @@ public class GeminiAiDescriptionService implements AiDescriptionService {
             System.out.println("--- [AutoDocER] Calling AI to generate examples for: "
                     + endpoint.httpMethod() + " " + endpoint.path());
 
-            // 3. Make the API call - Mirroring generateDescription's structure
-            //    Using the SAME hardcoded model name 'gemini-2.5-flash'
-            String jsonResponse = webClient.post()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("gemini-2.5-flash:generateContent") // Hardcoded model, matching generateDescription
-                            .queryParam("key", apiKey)
-                            .build())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResponse -> clientResponse.bodyToMono(String.class)
-                                    .flatMap(errorBody -> {
-                                        System.err.println("--- [AutoDocER] API Error Response (Examples): " + errorBody); // Specify context
-                                        // Return Mono error
-                                        return Mono.error(new RuntimeException("API Error during example generation: " + clientResponse.statusCode() + " Body: " + errorBody));
-                                    }))
-                    .bodyToMono(String.class)
-                    .block(); // Make call synchronous
+            // 3. Make the API call through the shared, rate-limited client
+            String jsonResponse = geminiClient.generateContent(requestBody).block();
 
             // 4. Parse the AI's response (expected to be a JSON array string)
             return parseExampleResponse(jsonResponse); // New helper
@@ -210,6 +319,13 @@ public class GeminiAiDescriptionService implements AiDescriptionService {
         }
     }
 
+    /**
+     * Releases the pooled connections held by the Gemini client.
+     */
+    public void close() {
+        geminiClient.dispose();
+    }
+
     // --- NEW: Helper for Building Example Prompt ---
     private String buildExamplePrompt(EndpointInfo endpoint,String serverUrl) {
         String httpMethod = endpoint.httpMethod().toUpperCase();
@@ -0,0 +1,182 @@
+package com.autodocer.AiDescription;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking client for the Gemini generateContent API.
+ * <ul>
+ *     <li>Requests go through a token bucket so bursts stay under the quota.</li>
+ *     <li>In-flight requests are capped by the size of a dedicated connection pool.</li>
+ *     <li>Every attempt has its own timeout.</li>
+ *     <li>429 and 5xx responses, timeouts and I/O errors are retried with exponential
+ *     backoff and jitter, waiting for the server's Retry-After when it sends one.</li>
+ * </ul>
+ */
+public class GeminiClient {
+
+    // Base URL without the key parameter (use v1, not v1beta)
+    private static final String GEMINI_BASE_URL =
+            "https://generativelanguage.googleapis.com/v1/models/";
+
+    /**
+     * Tuning for the client; see the autodocer.ai.gemini.* properties.
+     */
+    public record Settings(
+            String model,
+            double requestsPerSecond,
+            int burst,
+            int maxConcurrency,
+            Duration timeout,
+            int maxRetries,
+            Duration minBackoff,
+            Duration maxBackoff
+    ) {
+        public static Settings defaults() {
+            return new Settings("gemini-2.5-flash", 2.0, 4, 4,
+                    Duration.ofSeconds(30), 4, Duration.ofMillis(500), Duration.ofSeconds(30));
+        }
+    }
+
+    private final WebClient webClient;
+    private final String apiKey;
+    private final Settings settings;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final ConnectionProvider connectionProvider;
+
+    public GeminiClient(String apiKey, WebClient.Builder webClientBuilder, Settings settings) {
+        this.apiKey = apiKey;
+        this.settings = settings;
+        this.rateLimiter = new TokenBucketRateLimiter(settings.requestsPerSecond(), settings.burst());
+
+        // One pooled connection per in-flight request; extra requests wait for a free connection
+        this.connectionProvider = ConnectionProvider.builder("autodocer-gemini")
+                .maxConnections(Math.max(1, settings.maxConcurrency()))
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(settings.timeout().multipliedBy(Math.max(1, settings.maxRetries() + 1)))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(60))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(Integer.MAX_VALUE, settings.timeout().toMillis()))
+                .responseTimeout(settings.timeout())
+                .compress(true);
+
+        this.webClient = webClientBuilder
+                .baseUrl(GEMINI_BASE_URL)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    /**
+     * Sends a generateContent request.
+     * @return The raw JSON response, or an error once retries are exhausted.
+     */
+    public Mono<String> generateContent(String requestBody) {
+        return Mono.defer(() -> Mono.delay(rateLimiter.reserve()).then(send(requestBody)))
+                .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                    Throwable failure = signal.failure();
+                    long attempt = signal.totalRetries();
+                    if (attempt >= settings.maxRetries() || !isRetryable(failure)) {
+                        return Mono.error(failure);
+                    }
+                    Duration delay = retryAfter(failure).orElseGet(() -> backoff(attempt));
+                    System.err.println("--- [AutoDocER] Gemini call failed (" + describe(failure) + "), retry "
+                            + (attempt + 1) + "/" + settings.maxRetries() + " in " + delay.toMillis() + " ms");
+                    return Mono.delay(delay);
+                })));
+    }
+
+    public void dispose() {
+        connectionProvider.dispose();
+    }
+
+    private Mono<String> send(String requestBody) {
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path(settings.model() + ":generateContent")
+                        .queryParam("key", apiKey)
+                        .build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestBody)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("")
+                                .flatMap(errorBody -> {
+                                    System.err.println("--- [AutoDocER] API Error Response: " + errorBody);
+                                    return clientResponse.createException();
+                                }))
+                .bodyToMono(String.class)
+                .timeout(settings.timeout());
+    }
+
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+        }
+        return failure instanceof TimeoutException || failure instanceof WebClientRequestException;
+    }
+
+    /**
+     * Reads Retry-After as either delta-seconds or an HTTP date.
+     */
+    private Optional<Duration> retryAfter(Throwable failure) {
+        if (!(failure instanceof WebClientResponseException responseException)) {
+            return Optional.empty();
+        }
+        String header = responseException.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (header == null || header.isBlank()) {
+            return Optional.empty();
+        }
+        Duration delay;
+        try {
+            delay = Duration.ofSeconds(Long.parseLong(header.trim()));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                delay = Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt);
+            } catch (Exception notDate) {
+                return Optional.empty();
+            }
+        }
+        if (delay.isNegative()) {
+            delay = Duration.ZERO;
+        }
+        return Optional.of(delay.compareTo(settings.maxBackoff()) > 0 ? settings.maxBackoff() : delay);
+    }
+
+    /**
+     * Exponential backoff with +/-50% jitter, capped at maxBackoff.
+     */
+    private Duration backoff(long attempt) {
+        long base = settings.minBackoff().toMillis() << Math.min(attempt, 20);
+        long capped = Math.min(base, settings.maxBackoff().toMillis());
+        double jitter = 0.5 + ThreadLocalRandom.current().nextDouble();
+        return Duration.ofMillis((long) (capped * jitter));
+    }
+
+    private static String describe(Throwable failure) {
+        if (failure instanceof WebClientResponseException responseException) {
+            return "HTTP " + responseException.getStatusCode().value();
+        }
+        return failure.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,48 @@
+package com.autodocer.AiDescription;
+
+import java.time.Duration;
+
+/**
+ * A token bucket that hands out reservations instead of blocking. Callers ask
+ * for a permit and get back how long they must wait before using it, which
+ * lets reactive callers delay with a timer rather than parking a thread.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond Sustained rate.
+     * @param burst            Number of permits that may be used back to back after an idle period.
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserves one permit.
+     * @return How long the caller must wait before the permit becomes valid (zero if available now).
+     */
+    public synchronized Duration reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+        lastRefillNanos = now;
+
+        // Going negative queues the caller behind earlier reservations
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) (-tokens / permitsPerSecond * 1e9));
+    }
+}
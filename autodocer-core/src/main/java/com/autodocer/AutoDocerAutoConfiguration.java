@@ -1,28 +1,63 @@
 package com.autodocer;
 
 import com.autodocer.AiDescription.AiController;
+import com.autodocer.AiDescription.AiDescriptionCache;
 import com.autodocer.AiDescription.AiDescriptionService;
+import com.autodocer.AiDescription.AiEnrichmentService;
 import com.autodocer.AiDescription.GeminiAiDescriptionService;
+import com.autodocer.AiDescription.GeminiClient;
 import com.autodocer.AiDescription.PlaceholderAiDescriptionService;
+import com.netflix.appinfo.ApplicationInfoManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationContext; // Required import
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
-@AutoConfiguration
+import java.nio.file.Path;
+import java.time.Duration;
+
+// After the Eureka client so its ApplicationInfoManager bean can be detected
+@AutoConfiguration(afterName = "org.springframework.cloud.netflix.eureka.EurekaClientAutoConfiguration")
 public class AutoDocerAutoConfiguration {
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "gemini.api.key")
+    @ConditionalOnProperty(name = "autodocer.ai.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public AiDescriptionCache aiDescriptionCache(
+            @Value("${autodocer.ai.cache.file:.autodocer/ai-descriptions.jsonl}") String file,
+            @Value("${autodocer.ai.cache.max-entries:10000}") int maxEntries
+    ) {
+        System.out.println("--- [AutoDocER] Creating AiDescriptionCache bean backed by " + file + " ---");
+        return new AiDescriptionCache(Path.of(file), maxEntries);
+    }
+
     @Bean
     @ConditionalOnProperty(name = "gemini.api.key")
     public AiDescriptionService geminiAiDescriptionService(
             @Value("${gemini.api.key}") String apiKey,
-            WebClient.Builder webClientBuilder // Spring Boot provides this
+            WebClient.Builder webClientBuilder, // Spring Boot provides this
+            ObjectProvider<AiDescriptionCache> descriptionCache,
+            @Value("${autodocer.ai.batch-size:10}") int batchSize,
+            @Value("${autodocer.ai.gemini.model:gemini-2.5-flash}") String model,
+            @Value("${autodocer.ai.gemini.requests-per-second:2}") double requestsPerSecond,
+            @Value("${autodocer.ai.gemini.burst:4}") int burst,
+            @Value("${autodocer.ai.gemini.max-concurrency:4}") int maxConcurrency,
+            @Value("${autodocer.ai.gemini.timeout-ms:30000}") long timeoutMs,
+            @Value("${autodocer.ai.gemini.max-retries:4}") int maxRetries,
+            @Value("${autodocer.ai.gemini.min-backoff-ms:500}") long minBackoffMs,
+            @Value("${autodocer.ai.gemini.max-backoff-ms:30000}") long maxBackoffMs
     ) {
         System.out.println("--- [AutoDocER] Found 'gemini.api.key'. Creating *Gemini* AiDescriptionService bean ---");
-        return new GeminiAiDescriptionService(apiKey, webClientBuilder);
+        GeminiClient.Settings clientSettings = new GeminiClient.Settings(model, requestsPerSecond, burst, maxConcurrency,
+                Duration.ofMillis(timeoutMs), maxRetries, Duration.ofMillis(minBackoffMs), Duration.ofMillis(maxBackoffMs));
+        return new GeminiAiDescriptionService(apiKey, webClientBuilder, descriptionCache.getIfAvailable(), batchSize, clientSettings);
     }
 
     @Bean
@@ -34,17 +69,38 @@ public class AutoDocerAutoConfiguration {
 
 
     @Bean
-    public AiController aiController(AiDescriptionService aiService) {
+    public AiController aiController(AiDescriptionService aiService, ObjectProvider<AiDescriptionCache> descriptionCache) {
         // This controller uses the same AiService bean (Gemini or Placeholder)
         System.out.println("--- [AutoDocER] Creating AiController bean ---");
-        return new AiController(aiService);
+        return new AiController(aiService, descriptionCache.getIfAvailable());
+    }
+
+    @Bean
+    public AiEnrichmentService aiEnrichmentService(
+            AiDescriptionService aiService,
+            @Value("${autodocer.ai.enrichment.async:true}") boolean async,
+            @Value("${autodocer.ai.enrichment.concurrency:4}") int concurrency,
+            @Value("${autodocer.ai.batch-size:10}") int batchSize,
+            @Value("${autodocer.ai.enrichment.publish-window-ms:500}") long publishWindowMillis // collect arrivals into one spec rebuild
+    ) {
+        // Background enrichment only makes sense when a real AI service is configured
+        boolean enabled = async && !(aiService instanceof PlaceholderAiDescriptionService);
+        System.out.println("--- [AutoDocER] Creating AiEnrichmentService bean (background enrichment "
+                + (enabled ? "enabled" : "disabled") + ") ---");
+        return new AiEnrichmentService(aiService, enabled, concurrency, batchSize, publishWindowMillis);
     }
 
     @Bean
-    public DocumentationParser documentationParser(AiDescriptionService aiService) {
+    public DocumentationParser documentationParser(
+            AiDescriptionService aiService,
+            AiEnrichmentService enrichmentService,
+            @Value("${autodocer.scan.parallelism:1}") int parallelism, // 1 = serial, 0 = one thread per CPU
+            @Value("${autodocer.scan.endpoint-index:true}") boolean useEndpointIndex
+    ) {
         System.out.println("--- [AutoDocER] Creating DocumentationParser bean ---");
-        // Inject the service into the parser
-        return new DocumentationParser(aiService);
+        // With background enrichment the first pass only needs the rule-based descriptions
+        AiDescriptionService scanService = enrichmentService.isEnabled() ? new PlaceholderAiDescriptionService() : aiService;
+        return new DocumentationParser(scanService, parallelism, useEndpointIndex);
     }
 
     @Bean
@@ -54,9 +110,26 @@ public class AutoDocerAutoConfiguration {
     }
 
     @Bean
-    public DocumentationController documentationController(ApplicationContext context, DocumentationParser parser, OpenApiGenerator generator) {
+    public DocumentationCache documentationCache(
+            ApplicationContext context, DocumentationParser parser,
+            OpenApiGenerator generator, AiEnrichmentService enrichmentService,
+            @Value("${autodocer.docs.streaming:false}") boolean streaming, // write per request instead of caching bytes
+            @Value("${autodocer.docs.pretty:true}") boolean pretty,
+            @Value("${autodocer.docs.prebuilt:true}") boolean usePrebuilt, // serve the spec packaged by the Maven plugin
+            @Value("${autodocer.docs.lazy:false}") boolean lazy, // scan on first request, one controller at a time where possible
+            @Value("${autodocer.docs.history-size:32}") int historySize // versions kept for ?since= JSON Patch deltas, 0 = off; always off when streaming
+    ) {
+        System.out.println("--- [AutoDocER] Creating DocumentationCache bean ---");
+        return new DocumentationCache(context, parser, generator, enrichmentService, streaming, pretty, usePrebuilt, lazy, historySize);
+    }
+
+    @Bean
+    public DocumentationController documentationController(
+            DocumentationCache cache,
+            @Value("${autodocer.refresh.enabled:false}") boolean refreshEnabled // allow POST /autodocer/api-docs/refresh
+    ) {
         System.out.println("--- [AutoDocER] Creating DocumentationController bean ---"); // Added debug
-        return new DocumentationController(context, parser, generator);
+        return new DocumentationController(cache, refreshEnabled);
     }
 
     @Bean
@@ -70,4 +143,21 @@ public class AutoDocerAutoConfiguration {
         System.out.println("--- [AutoDocER] Creating CustomUiController bean ---"); // Added debug
         return new CustomUiController();
     }
+
+    // Only for applications registered with Eureka; the client library is an optional dependency
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "com.netflix.appinfo.ApplicationInfoManager")
+    @ConditionalOnProperty(name = "autodocer.eureka.publish-spec-hash", havingValue = "true", matchIfMissing = true)
+    static class EurekaSpecHashConfiguration {
+
+        @Bean
+        @ConditionalOnBean(ApplicationInfoManager.class)
+        public SpecHashPublisher specHashPublisher(ApplicationInfoManager applicationInfoManager, DocumentationCache cache) {
+            System.out.println("--- [AutoDocER] Creating SpecHashPublisher bean (metadata key '"
+                    + SpecHashPublisher.METADATA_KEY + "') ---");
+            SpecHashPublisher publisher = new SpecHashPublisher(applicationInfoManager);
+            cache.addPublishListener(publisher::publish);
+            return publisher;
+        }
+    }
 }
\ No newline at end of file
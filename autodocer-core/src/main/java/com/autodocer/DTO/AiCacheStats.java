@@ -0,0 +1,12 @@
+package com.autodocer.DTO;
+
+/**
+ * Usage figures for the persistent AI description cache.
+ */
+public record AiCacheStats(
+        String file,
+        int entries,
+        int maxEntries,
+        long hits,
+        long misses
+) {}
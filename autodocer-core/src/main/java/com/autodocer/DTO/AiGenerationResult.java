@@ -7,5 +7,18 @@ package com.autodocer.DTO;
 public record AiGenerationResult(
         String summary,
         String description
-) {}
+) {
 
+    public static final String ERROR_SUMMARY = "Error generating summary";
+
+    /**
+     * Result used when the AI service could not produce a description.
+     */
+    public static AiGenerationResult error(String reason) {
+        return new AiGenerationResult(ERROR_SUMMARY, "Could not generate AI description: " + reason);
+    }
+
+    public boolean failed() {
+        return ERROR_SUMMARY.equals(summary);
+    }
+}
@@ -0,0 +1,13 @@
+package com.autodocer.DTO;
+
+/**
+ * Progress of the background stage that replaces rule-based endpoint
+ * descriptions with AI-generated ones.
+ */
+public record EnrichmentProgress(
+        boolean enabled,
+        int total,
+        int enriched,
+        int pending,
+        int failed
+) {}
@@ -18,8 +18,16 @@ import java.util.List;
 public record SchemaInfo(
         String className,
         List<FieldInfo> fields,
-        List<String> requiredFields // ADDED
+        List<String> requiredFields, // ADDED
+        String qualifiedName // Fully qualified class name, tells apart same-named classes
 ) {
+    /**
+     * Convenience constructor for schemas whose simple name is assumed unique.
+     */
+    public SchemaInfo(String className, List<FieldInfo> fields, List<String> requiredFields) {
+        this(className, fields, requiredFields, className);
+    }
+
     /**
      * Convenience constructor for schemas without required fields (though this is rare).
      */
@@ -0,0 +1,14 @@
+package com.autodocer.DTO;
+
+import java.util.List;
+
+/**
+ * The ranked answer to a search over the documented endpoints.
+ */
+public record SearchResponse(
+        String query,
+        long version, // snapshot version the index was built from
+        int total, // matches before the limit was applied
+        long tookMicros,
+        List<SearchResult> results
+) {}
@@ -0,0 +1,13 @@
+package com.autodocer.DTO;
+
+/**
+ * One endpoint matching a search, with enough to locate it in its tag document.
+ */
+public record SearchResult(
+        String controller,
+        String methodName,
+        String httpMethod,
+        String path,
+        String summary,
+        double score
+) {}
@@ -0,0 +1,18 @@
+package com.autodocer.DTO;
+
+import java.time.Instant;
+
+/**
+ * Describes the documentation snapshot currently held in memory.
+ */
+public record SnapshotStatus(
+        boolean built,
+        Instant builtAt,
+        long ageMillis,
+        long buildTimeMillis,
+        int controllerCount,
+        int endpointCount,
+        long version,
+        EnrichmentProgress enrichment,
+        String source // "runtime" when scanned at startup, "prebuilt" when packaged at build time
+) {}
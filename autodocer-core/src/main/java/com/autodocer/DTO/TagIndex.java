@@ -0,0 +1,12 @@
+package com.autodocer.DTO;
+
+import java.util.List;
+
+/**
+ * Lightweight listing of the documented controllers, served so a UI can
+ * render its navigation before loading any one controller's document.
+ */
+public record TagIndex(
+        List<ServerData> servers,
+        List<TagSummary> tags
+) {}
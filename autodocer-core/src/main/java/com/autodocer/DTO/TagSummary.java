@@ -0,0 +1,10 @@
+package com.autodocer.DTO;
+
+/**
+ * One controller (an OpenAPI tag) in the tag index, without its schemas.
+ */
+public record TagSummary(
+        String name,
+        String basePath, // null when only the packaged document is known
+        int endpointCount
+) {}
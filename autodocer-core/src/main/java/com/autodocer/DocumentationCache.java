@@ -0,0 +1,429 @@
+package com.autodocer;
+
+import com.autodocer.AiDescription.AiEnrichmentService;
+import com.autodocer.DocumentationParser.ApiDocumentationResult;
+import com.autodocer.DTO.AiGenerationResult;
+import com.autodocer.DTO.ControllerInfo;
+import com.autodocer.DTO.EndpointInfo;
+import com.autodocer.DTO.SearchResponse;
+import com.autodocer.DTO.ServerData;
+import com.autodocer.DTO.SnapshotStatus;
+import com.autodocer.DTO.TagIndex;
+import com.autodocer.DTO.TagSummary;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds the most recently generated OpenAPI document in memory so that
+ * requests to the docs endpoint do not rescan the application every time.
+ * The snapshot is rebuilt when the application context is refreshed or
+ * when {@link #rebuild()} is called explicitly.
+ * <p>
+ * When background AI enrichment is enabled, the structural snapshot is
+ * published first and then replaced by newer versions as AI descriptions
+ * arrive. Every published snapshot gets a new, increasing version number.
+ * <p>
+ * In streaming mode a snapshot keeps only the parsed model and the content
+ * hash; the document is written straight to each response instead of being
+ * held in memory as bytes.
+ * <p>
+ * If the application was built with the autodocer Maven plugin, the packaged
+ * {@link PrebuiltSpec} is served instead and nothing is scanned at runtime.
+ * <p>
+ * The cache also serves a per-controller (per-tag) view: a lightweight
+ * {@link TagIndex} and one document per tag, generated on first request.
+ * In lazy mode the full snapshot is not built when the context starts, so
+ * these are answered by scanning only the controller that is asked for.
+ * <p>
+ * Every published snapshot is also fed to a {@link SearchIndex}, which only
+ * reindexes the endpoints that changed since the previous version, and
+ * diffed into a {@link SpecHistory} so clients can fetch a JSON Patch from
+ * the version they hold instead of the whole document. Publish listeners
+ * (see {@link #addPublishListener}) are told about every new version, e.g.
+ * to advertise its content hash in a service registry.
+ */
+public class DocumentationCache implements ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * An immutable, fully generated view of the documentation.
+     */
+    public record Snapshot(
+            ApiDocumentationResult result,
+            SerializedSpec spec,
+            Instant builtAt,
+            long buildTimeMillis,
+            long version
+    ) {}
+
+    private final ApplicationContext context;
+    private final DocumentationParser parser;
+    private final OpenApiGenerator generator;
+    private final AiEnrichmentService enrichment;
+    private final boolean streaming;
+    private final boolean pretty;
+    private final boolean usePrebuilt;
+    private final boolean lazy;
+
+    // Per-tag documents, each remembering the snapshot version it was cut from
+    private record TagSpec(long version, SerializedSpec spec) {}
+
+    private final Map<String, TagSpec> tagSpecs = new ConcurrentHashMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final SpecHistory history;
+    private final List<Consumer<Snapshot>> publishListeners = new CopyOnWriteArrayList<>();
+    private volatile TagIndex scannedTagIndex;
+
+    private final Object buildLock = new Object();
+    private volatile Snapshot snapshot;
+    private long version;
+    private long buildId;
+    private boolean prebuiltLoaded;
+    // Written under buildLock, read without it by the request paths
+    private volatile PrebuiltSpec prebuilt;
+
+    public DocumentationCache(ApplicationContext context, DocumentationParser parser, OpenApiGenerator generator,
+                              AiEnrichmentService enrichment) {
+        this(context, parser, generator, enrichment, false, true, true, false, 0);
+    }
+
+    /**
+     * @param streaming   Write the document to each response instead of keeping its bytes.
+     * @param pretty      Indent the document; compact output is smaller to hold and send.
+     * @param usePrebuilt Serve the build-time document when the application ships one.
+     * @param lazy        Build the full snapshot on first request instead of at startup.
+     * @param historySize Version steps kept for JSON Patch deltas; 0 disables them. The
+     *                    history holds the current document as a tree, so it is always
+     *                    disabled in streaming mode, where no document is held.
+     */
+    public DocumentationCache(ApplicationContext context, DocumentationParser parser, OpenApiGenerator generator,
+                              AiEnrichmentService enrichment, boolean streaming, boolean pretty, boolean usePrebuilt,
+                              boolean lazy, int historySize) {
+        this.context = context;
+        this.parser = parser;
+        this.generator = generator;
+        this.enrichment = enrichment;
+        this.streaming = streaming;
+        this.pretty = pretty;
+        this.usePrebuilt = usePrebuilt;
+        this.lazy = lazy;
+        if (streaming && historySize > 0) {
+            System.out.println("--- [AutoDocER] Streaming mode keeps no document to diff; ?since= JSON Patch deltas are off ---");
+        }
+        this.history = new SpecHistory(streaming ? 0 : historySize);
+    }
+
+    /**
+     * Returns the current snapshot, building it first if none exists yet.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (buildLock) {
+            if (snapshot == null) {
+                build();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Registers a callback run, while the build lock is held, after each
+     * snapshot is published. A snapshot that already exists is passed to it
+     * right away.
+     */
+    public void addPublishListener(Consumer<Snapshot> listener) {
+        synchronized (buildLock) {
+            publishListeners.add(listener);
+            if (snapshot != null) {
+                listener.accept(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Discards the current snapshot and builds a new one immediately.
+     */
+    public Snapshot rebuild() {
+        synchronized (buildLock) {
+            build();
+            return snapshot;
+        }
+    }
+
+    /**
+     * Writes the document of a snapshot to the given stream, for snapshots
+     * whose spec is not buffered.
+     */
+    public void writeTo(Snapshot snapshot, OutputStream out) throws IOException {
+        generator.write(snapshot.result(), out, pretty);
+    }
+
+    /**
+     * Returns the JSON Patch (RFC 6902) that turns the document of an earlier
+     * version into the given snapshot's document.
+     * @param ifNoneMatch The ETag of the document the client holds, if it sent
+     *                    one; the patch is refused when it names another document.
+     * @return The patch, or null when the full document must be sent instead.
+     */
+    public byte[] getPatch(Snapshot snapshot, long since, String ifNoneMatch) {
+        if (!history.isEnabled()) {
+            return null;
+        }
+        return history.patchSince(since, snapshot.version(),
+                ifNoneMatch == null ? null : hash -> SerializedSpec.matches(ifNoneMatch, hash));
+    }
+
+    /**
+     * Lists the documented controllers with their endpoint counts. Taken from
+     * the snapshot when there is one; otherwise only the mapping annotations
+     * are scanned, once.
+     */
+    public TagIndex getTagIndex() {
+        Snapshot current = snapshot;
+        PrebuiltSpec served = prebuilt;
+        if (current != null && served != null && current.spec() == served.spec()) {
+            return new TagIndex(served.servers(), served.tags());
+        }
+        if (current != null) {
+            List<TagSummary> tags = new ArrayList<>();
+            for (ControllerInfo controller : current.result().controllers()) {
+                tags.add(new TagSummary(controller.className(), controller.basePath(), controller.endpoints().size()));
+            }
+            return new TagIndex(current.result().servers(), tags);
+        }
+        TagIndex tagIndex = scannedTagIndex;
+        if (tagIndex == null) {
+            tagIndex = new TagIndex(parser.parseServers(context), parser.listControllers(context));
+            scannedTagIndex = tagIndex;
+        }
+        return tagIndex;
+    }
+
+    /**
+     * Returns the document of a single controller, generated on first request
+     * and kept until the snapshot it was cut from is replaced.
+     * @param tag The controller's simple class name, as used for the OpenAPI tag.
+     * @return The document, or null if there is no such controller.
+     */
+    public SerializedSpec getTagSpec(String tag) throws IOException {
+        Snapshot current = snapshot;
+        long forVersion = current != null ? current.version() : 0;
+        TagSpec cached = tagSpecs.get(tag);
+        if (cached != null && cached.version() == forVersion) {
+            return cached.spec();
+        }
+
+        byte[] json;
+        PrebuiltSpec served = prebuilt;
+        if (current != null && served != null && current.spec() == served.spec()) {
+            json = served.sliceTag(tag, pretty);
+        } else {
+            ControllerInfo controller = null;
+            List<ServerData> servers;
+            if (current != null) {
+                servers = current.result().servers();
+                for (ControllerInfo candidate : current.result().controllers()) {
+                    if (candidate.className().equals(tag)) {
+                        controller = candidate;
+                        break;
+                    }
+                }
+            } else {
+                servers = getTagIndex().servers();
+                controller = parser.parseController(context, tag);
+            }
+            json = controller == null ? null
+                    : generator.generateBytes(new ApiDocumentationResult(servers, List.of(controller)), pretty);
+        }
+        if (json == null) {
+            return null;
+        }
+        SerializedSpec spec = SerializedSpec.of(json);
+        tagSpecs.put(tag, new TagSpec(forVersion, spec));
+        return spec;
+    }
+
+    /**
+     * Searches the endpoints of the current snapshot, building it first if
+     * none exists yet.
+     */
+    public SearchResponse search(String query, int limit) {
+        getSnapshot();
+        return searchIndex.search(query, limit);
+    }
+
+    public SnapshotStatus getStatus() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return new SnapshotStatus(false, null, 0, 0, 0, 0, 0, enrichment.getProgress(), null);
+        }
+        PrebuiltSpec served = prebuilt;
+        boolean fromPrebuilt = served != null && current.spec() == served.spec();
+        int controllerCount = fromPrebuilt ? served.controllerCount() : current.result().controllers().size();
+        int endpointCount = 0;
+        if (fromPrebuilt) {
+            endpointCount = served.endpointCount();
+        } else {
+            for (ControllerInfo controller : current.result().controllers()) {
+                endpointCount += controller.endpoints().size();
+            }
+        }
+        return new SnapshotStatus(
+                true,
+                current.builtAt(),
+                Duration.between(current.builtAt(), Instant.now()).toMillis(),
+                current.buildTimeMillis(),
+                controllerCount,
+                endpointCount,
+                current.version(),
+                enrichment.getProgress(),
+                fromPrebuilt ? "prebuilt" : "runtime"
+        );
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        // Ignore refreshes of child contexts (e.g. a separate management context)
+        if (event.getApplicationContext() != context) {
+            return;
+        }
+        if (lazy) {
+            synchronized (buildLock) {
+                // A packaged document costs nothing to serve, so it is still loaded up front
+                if (loadPrebuilt() != null) {
+                    build();
+                    return;
+                }
+                System.out.println("--- [AutoDocER] Application context refreshed. Documentation will be scanned on first request ---");
+                snapshot = null;
+                scannedTagIndex = null;
+                tagSpecs.clear();
+            }
+            return;
+        }
+        System.out.println("--- [AutoDocER] Application context refreshed. Rebuilding documentation snapshot ---");
+        rebuild();
+    }
+
+    // Must be called while holding buildLock
+    private void build() {
+        long start = System.nanoTime();
+        scannedTagIndex = null;
+        if (loadPrebuilt() != null) {
+            long buildTimeMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("--- [AutoDocER] Serving prebuilt documentation from " + PrebuiltSpec.LOCATION + " ("
+                    + prebuilt.spec().identity().length + " bytes), skipping runtime scan ---");
+            snapshot = new Snapshot(new ApiDocumentationResult(List.of(), List.of()), prebuilt.spec(),
+                    Instant.now(), buildTimeMillis, ++version);
+            buildId++;
+            searchIndex.update(version, prebuilt.controllers());
+            recordHistory(snapshot);
+            notifyPublished(snapshot);
+            return;
+        }
+        ApiDocumentationResult result = parser.parse(context);
+        SerializedSpec spec = serialize(result);
+        long buildTimeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.println("--- [AutoDocER] Documentation snapshot built in " + buildTimeMillis + " ms ("
+                + (spec.isBuffered()
+                        ? spec.identity().length + " bytes, " + spec.gzip().length + " bytes gzipped"
+                        : "streamed") + ") ---");
+        snapshot = new Snapshot(result, spec, Instant.now(), buildTimeMillis, ++version);
+        searchIndex.update(version, result.controllers());
+        recordHistory(snapshot);
+        notifyPublished(snapshot);
+
+        long currentBuild = ++buildId;
+        enrichment.start(result, updates -> applyDescriptions(currentBuild, updates));
+    }
+
+    // Must be called while holding buildLock
+    private PrebuiltSpec loadPrebuilt() {
+        if (usePrebuilt && !prebuiltLoaded) {
+            prebuilt = PrebuiltSpec.load(context.getClassLoader());
+            prebuiltLoaded = true;
+        }
+        return prebuilt;
+    }
+
+    /**
+     * Publishes a new snapshot version with the given AI descriptions merged in.
+     * Updates belonging to a snapshot that has since been rebuilt are dropped.
+     */
+    private void applyDescriptions(long forBuild, Map<String, AiGenerationResult> updates) {
+        synchronized (buildLock) {
+            Snapshot current = snapshot;
+            if (current == null || forBuild != buildId) {
+                return;
+            }
+            List<ControllerInfo> controllers = new ArrayList<>();
+            for (ControllerInfo controller : current.result().controllers()) {
+                List<EndpointInfo> endpoints = new ArrayList<>();
+                for (EndpointInfo endpoint : controller.endpoints()) {
+                    AiGenerationResult update = updates.get(AiEnrichmentService.endpointKey(controller.className(), endpoint));
+                    endpoints.add(update == null ? endpoint : new EndpointInfo(
+                            endpoint.methodName(),
+                            endpoint.httpMethod(),
+                            endpoint.path(),
+                            endpoint.parameters(),
+                            endpoint.responseType(),
+                            update.summary(),
+                            update.description()
+                    ));
+                }
+                controllers.add(new ControllerInfo(controller.className(), controller.basePath(), endpoints));
+            }
+
+            ApiDocumentationResult result = new ApiDocumentationResult(current.result().servers(), controllers);
+            SerializedSpec spec = serialize(result);
+            snapshot = new Snapshot(result, spec, current.builtAt(), current.buildTimeMillis(), ++version);
+            int reindexed = searchIndex.update(version, controllers);
+            recordHistory(snapshot);
+            notifyPublished(snapshot);
+            System.out.println("--- [AutoDocER] Applied " + updates.size() + " AI descriptions, spec version " + version
+                    + ", reindexed " + reindexed + " endpoints for search ---");
+        }
+    }
+
+    // Must be called while holding buildLock
+    private void recordHistory(Snapshot published) {
+        // Only buffered documents are diffed; building one just for the history would undo streaming
+        if (history.isEnabled() && published.spec().isBuffered()) {
+            history.record(published.version(), published.spec().contentHash(), published.spec().identity());
+        }
+    }
+
+    // Must be called while holding buildLock
+    private void notifyPublished(Snapshot published) {
+        for (Consumer<Snapshot> listener : publishListeners) {
+            try {
+                listener.accept(published);
+            } catch (RuntimeException e) {
+                // A failing listener must not stop the snapshot from being served
+                System.err.println("--- [AutoDocER] Snapshot publish listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private SerializedSpec serialize(ApiDocumentationResult result) {
+        if (streaming) {
+            return SerializedSpec.streamed(out -> generator.write(result, out, pretty));
+        }
+        return SerializedSpec.of(generator.generateBytes(result, pretty));
+    }
+}
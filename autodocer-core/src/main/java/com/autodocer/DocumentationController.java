@@ -1,12 +1,23 @@
 package com.autodocer;
 
-// Import the necessary wrapper class
-import com.autodocer.DocumentationParser.ApiDocumentationResult;
-
-import com.autodocer.DTO.*;
-import org.springframework.context.ApplicationContext;
+import com.autodocer.DTO.SearchResponse;
+import com.autodocer.DTO.SnapshotStatus;
+import com.autodocer.DTO.TagIndex;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * This controller is automatically registered by the library and exposes
@@ -15,28 +26,179 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class DocumentationController {
 
-    private final ApplicationContext context;
-    private final DocumentationParser parser;
-    private final OpenApiGenerator generator;
+    /**
+     * Carries the snapshot version of the document or patch in a response.
+     */
+    public static final String SPEC_VERSION_HEADER = "X-AutoDocER-Spec-Version";
+    public static final String JSON_PATCH = "application/json-patch+json";
+
+    private final DocumentationCache cache;
+    private final boolean refreshEnabled;
 
-    public DocumentationController(ApplicationContext context, DocumentationParser parser, OpenApiGenerator generator) {
-        this.context = context;
-        this.parser = parser;
-        this.generator = generator;
+    public DocumentationController(DocumentationCache cache, boolean refreshEnabled) {
+        this.cache = cache;
+        this.refreshEnabled = refreshEnabled;
     }
 
     /**
      * The main endpoint for serving the OpenAPI 3.0 JSON specification.
-     * @return A string containing the JSON documentation.
+     * The document is served from the in-memory snapshot as pre-serialized
+     * (and, when the client accepts it, pre-gzipped) bytes. Clients that send
+     * back the ETag in If-None-Match get a 304 while the spec is unchanged.
+     * In streaming mode the document is written straight to the response instead.
+     * <p>
+     * With {@code since}, the version from an earlier response's
+     * {@value #SPEC_VERSION_HEADER} header, the answer is a JSON Patch
+     * ({@value #JSON_PATCH}) from that version to the current one when the
+     * history still covers it (there is none in streaming mode), and the full
+     * document otherwise. A client should send the ETag it holds in
+     * If-None-Match as well, so that a version number from before a restart
+     * is not patched.
+     * @return The JSON documentation bytes, or null once the document has been streamed.
+     */
+    @GetMapping(value = "/autodocer/api-docs", produces = {"application/json", JSON_PATCH})
+    public ResponseEntity<byte[]> getApiDocs(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse servletResponse) throws IOException {
+        DocumentationCache.Snapshot snapshot = cache.getSnapshot();
+        SerializedSpec spec = snapshot.spec();
+        String encoding = SerializedSpec.negotiateEncoding(acceptEncoding);
+        String version = String.valueOf(snapshot.version());
+
+        if (spec.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(spec.etag(encoding))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .header(SPEC_VERSION_HEADER, version)
+                    .build();
+        }
+
+        if (since != null) {
+            byte[] patch = cache.getPatch(snapshot, since, ifNoneMatch);
+            if (patch != null) {
+                // Patches are small, so they are sent uncompressed
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(JSON_PATCH))
+                        .eTag(spec.etag(null))
+                        .header(SPEC_VERSION_HEADER, version)
+                        .body(patch);
+            }
+        }
+
+        if (!spec.isBuffered()) {
+            servletResponse.setHeader(SPEC_VERSION_HEADER, version);
+            stream(snapshot, encoding, servletResponse);
+            return null;
+        }
+        return respond(spec, encoding, version);
+    }
+
+    /**
+     * Lists the documented controllers (OpenAPI tags) with their endpoint
+     * counts and no schemas, so a UI can render its navigation right away.
+     */
+    @GetMapping(value = "/autodocer/api-docs/tags", produces = "application/json")
+    public TagIndex getTags() {
+        return cache.getTagIndex();
+    }
+
+    /**
+     * Serves an OpenAPI document holding only the given controller's
+     * endpoints and the schemas they use. The controller is parsed on first
+     * request when no full snapshot exists yet.
      */
-    @GetMapping(value = "/autodocer/api-docs", produces = "application/json")
-    public String getApiDocs() {
-        // 1. Parse the application to get the combined result
+    @GetMapping(value = "/autodocer/api-docs/tags/{controller}", produces = "application/json")
+    public ResponseEntity<byte[]> getTag(
+            @PathVariable String controller,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
+        SerializedSpec spec = cache.getTagSpec(controller);
+        if (spec == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String encoding = SerializedSpec.negotiateEncoding(acceptEncoding);
+        if (spec.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(spec.etag(encoding))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        return respond(spec, encoding, null);
+    }
+
+    private static ResponseEntity<byte[]> respond(SerializedSpec spec, String encoding, String version) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(spec.etag(encoding))
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (version != null) {
+            response.header(SPEC_VERSION_HEADER, version);
+        }
+        if (encoding != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return response.body(spec.body(encoding));
+    }
+
+    /**
+     * Writes the document of a streamed snapshot directly to the response,
+     * compressing on the fly when the client accepts gzip.
+     */
+    private void stream(DocumentationCache.Snapshot snapshot, String encoding, HttpServletResponse servletResponse)
+            throws IOException {
+        servletResponse.setStatus(HttpStatus.OK.value());
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setHeader(HttpHeaders.ETAG, snapshot.spec().etag(encoding));
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding != null) {
+            servletResponse.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        OutputStream out = servletResponse.getOutputStream();
+        if (encoding != null) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+            cache.writeTo(snapshot, compressed);
+            compressed.finish();
+        } else {
+            cache.writeTo(snapshot, out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Ranks the documented endpoints against a free-text query, matching
+     * paths, method and controller names, parameter names and descriptions.
+     * @param limit The maximum number of results, at most 100.
+     */
+    @GetMapping(value = "/autodocer/search", produces = "application/json")
+    public SearchResponse search(
+            @RequestParam(value = "q", required = false, defaultValue = "") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return cache.search(query, Math.max(1, Math.min(limit, 100)));
+    }
 
-        System.out.println("Hiiiiiiiiiiiiiiiiiiiiiiiiii");
-        ApiDocumentationResult documentationResult = parser.parse(context);
+    /**
+     * Reports when the current snapshot was built and how long it took.
+     */
+    @GetMapping(value = "/autodocer/api-docs/status", produces = "application/json")
+    public SnapshotStatus getStatus() {
+        return cache.getStatus();
+    }
 
-        // 2. Generate the OpenAPI JSON string from the combined result
-        return generator.generate(documentationResult);
+    /**
+     * Forces a rescan of the application and replaces the cached snapshot.
+     * A rescan also asks the AI service for every endpoint again, and the
+     * endpoint is not authenticated, so it answers 404 unless
+     * autodocer.refresh.enabled is set.
+     */
+    @PostMapping(value = "/autodocer/api-docs/refresh", produces = "application/json")
+    public ResponseEntity<SnapshotStatus> refresh() {
+        if (!refreshEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        System.out.println("--- [AutoDocER] Documentation refresh requested ---");
+        cache.rebuild();
+        return ResponseEntity.ok(cache.getStatus());
     }
-}
\ No newline at end of file
+}
@@ -14,16 +14,45 @@ import java.lang.reflect.Parameter;
 import java.lang.reflect.Type;
 import java.lang.reflect.ParameterizedType;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 public class DocumentationParser {
 
+    // Sort handler methods so the generated spec is identical across runs;
+    // getDeclaredMethods() makes no ordering guarantee.
+    private static final Comparator<Method> METHOD_ORDER =
+            Comparator.comparing(Method::getName).thenComparing(Method::toString);
+
     private final SchemaParser schemaParser;
     private final AiDescriptionService aiService;
+    private final int parallelism;
+    private final boolean useEndpointIndex;
+    // Read from the class path on first use; the classes it describes do not change while the application runs
+    private EndpointIndex endpointIndex;
+    private boolean endpointIndexLoaded;
 
     public DocumentationParser(AiDescriptionService aiService) {
+        this(aiService, 1);
+    }
+
+    public DocumentationParser(AiDescriptionService aiService, int parallelism) {
+        this(aiService, parallelism, true);
+    }
+
+    /**
+     * @param parallelism      Number of controllers scanned concurrently. 1 scans
+     *                         serially; 0 or less uses one thread per available processor.
+     * @param useEndpointIndex Take the handler methods of a controller from the
+     *                         compile-time {@link EndpointIndex} when it has an
+     *                         entry for the controller.
+     */
+    public DocumentationParser(AiDescriptionService aiService, int parallelism, boolean useEndpointIndex) {
         this.schemaParser = new SchemaParser();
         this.aiService = aiService;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.useEndpointIndex = useEndpointIndex;
     }
 
     public record ApiDocumentationResult(
@@ -33,37 +62,203 @@ public class DocumentationParser {
 
     public ApiDocumentationResult parse(ApplicationContext context) {
         System.out.println("--- [AutoDocER] Starting Full Scan (Controllers + Config) ---");
+        long start = System.nanoTime();
+        long hitsBefore = schemaParser.getCacheHits();
+        long missesBefore = schemaParser.getCacheMisses();
 
         List<ServerData> serverInfos = extractServerInfo(context);
         List<ControllerInfo> controllerInfos = new ArrayList<>();
-        Map<String, Object> controllers = context.getBeansWithAnnotation(RestController.class);
+        EndpointIndex index = loadEndpointIndex(context);
+        List<Class<?>> controllerClasses = findControllers(context);
+        if (!controllerClasses.isEmpty()) {
+            controllerInfos = scanControllers(controllerClasses, index);
+        }
+        System.out.println("--- [AutoDocER] Scan Complete in " + (System.nanoTime() - start) / 1_000_000 + " ms (schema cache: "
+                + (schemaParser.getCacheHits() - hitsBefore) + " hits, " + (schemaParser.getCacheMisses() - missesBefore)
+                + " misses, " + schemaParser.getCachedTypeCount() + " types cached) ---");
+        return new ApiDocumentationResult(serverInfos, controllerInfos);
+    }
+
+    /**
+     * Lists the controllers with their endpoint counts. Only the mapping
+     * annotations are read: no schemas are parsed and no descriptions generated.
+     */
+    public List<TagSummary> listControllers(ApplicationContext context) {
+        List<TagSummary> tags = new ArrayList<>();
+        EndpointIndex index = loadEndpointIndex(context);
+        for (Class<?> controllerClass : findControllers(context)) {
+            List<EndpointIndex.Handler> indexed = index != null ? index.handlers(controllerClass.getName()) : null;
+            int endpointCount = 0;
+            if (indexed != null) {
+                endpointCount = indexed.size();
+            } else {
+                for (Method method : controllerClass.getDeclaredMethods()) {
+                    if (httpMethodOf(method) != null) {
+                        endpointCount++;
+                    }
+                }
+            }
+            tags.add(new TagSummary(controllerClass.getSimpleName(), basePathOf(controllerClass), endpointCount));
+        }
+        return tags;
+    }
+
+    /**
+     * Parses the single controller documented under the given tag, i.e. the
+     * controller's simple class name.
+     * @return The controller, or null if there is no controller with that name.
+     */
+    public ControllerInfo parseController(ApplicationContext context, String tag) {
+        EndpointIndex index = loadEndpointIndex(context);
+        for (Class<?> controllerClass : findControllers(context)) {
+            if (controllerClass.getSimpleName().equals(tag)) {
+                System.out.println("--- [AutoDocER] Scanning controller " + controllerClass.getName() + " on demand ---");
+                return parseController(controllerClass, index);
+            }
+        }
+        return null;
+    }
 
+    public List<ServerData> parseServers(ApplicationContext context) {
+        return extractServerInfo(context);
+    }
+
+    /**
+     * Parses the given controller classes without an application context, e.g.
+     * over compiled classes at build time.
+     * @param mainAppClass The @SpringBootApplication class to read @ApiServers from, or null.
+     */
+    public ApiDocumentationResult parseClasses(List<Class<?>> controllerClasses, Class<?> mainAppClass) {
+        System.out.println("--- [AutoDocER] Scanning " + controllerClasses.size() + " controller classes ---");
+        List<ServerData> serverInfos = new ArrayList<>();
+        if (mainAppClass != null) {
+            serverInfos = extractServerInfo(mainAppClass);
+        } else {
+            serverInfos.add(new ServerData("/", "Default Server (Relative Path)"));
+        }
+        return new ApiDocumentationResult(serverInfos, scanControllers(controllerClasses, null));
+    }
+
+    private synchronized EndpointIndex loadEndpointIndex(ApplicationContext context) {
+        if (useEndpointIndex && !endpointIndexLoaded) {
+            endpointIndex = EndpointIndex.load(context.getClassLoader());
+            endpointIndexLoaded = true;
+        }
+        return endpointIndex;
+    }
+
+    /**
+     * The controller classes to document: the @RestController beans. The
+     * endpoint index is not consulted here, as an application compiled
+     * without the processor has no entries of its own, while the index
+     * shipped with this library is still on the class path.
+     */
+    private List<Class<?>> findControllers(ApplicationContext context) {
+        Map<String, Object> controllers = context.getBeansWithAnnotation(RestController.class);
         if (controllers.isEmpty()) {
             System.out.println("--- [AutoDocER] No @RestController beans found.");
+            return List.of();
+        }
+        System.out.println("--- [AutoDocER] Found " + controllers.size() + " controllers.");
+        List<Class<?>> controllerClasses = new ArrayList<>();
+        for (Object controllerBean : controllers.values()) {
+            controllerClasses.add(org.springframework.aop.support.AopUtils.getTargetClass(controllerBean));
+        }
+        return controllerClasses;
+    }
+
+    /**
+     * Parses every controller, one task per controller when parallel scanning
+     * is enabled. Results are collected in the original bean order so the
+     * output does not depend on which task finishes first.
+     */
+    private List<ControllerInfo> scanControllers(List<Class<?>> controllerClasses, EndpointIndex index) {
+        if (parallelism <= 1 || controllerClasses.size() <= 1) {
+            List<ControllerInfo> controllerInfos = new ArrayList<>();
+            for (Class<?> controllerClass : controllerClasses) {
+                controllerInfos.add(parseController(controllerClass, index));
+            }
+            return controllerInfos;
+        }
+
+        System.out.println("--- [AutoDocER] Scanning controllers with parallelism " + parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<ControllerInfo>> tasks = new ArrayList<>();
+            for (Class<?> controllerClass : controllerClasses) {
+                tasks.add(pool.submit(() -> parseController(controllerClass, index)));
+            }
+            List<ControllerInfo> controllerInfos = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<ControllerInfo> task : tasks) {
+                controllerInfos.add(task.join());
+            }
+            return controllerInfos;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ControllerInfo parseController(Class<?> controllerClass, EndpointIndex index) {
+        String controllerName = controllerClass.getSimpleName();
+        String basePath = basePathOf(controllerClass);
+
+        List<EndpointInfo> endpointInfos = new ArrayList<>();
+        Map<Method, EndpointIndex.Handler> handlers =
+                index != null ? indexedHandlers(controllerClass, index.handlers(controllerClass.getName())) : null;
+        if (handlers != null) {
+            for (Map.Entry<Method, EndpointIndex.Handler> handler : handlers.entrySet()) {
+                parseMethod(handler.getKey(), basePath, handler.getValue()).ifPresent(endpointInfos::add);
+            }
         } else {
-            System.out.println("--- [AutoDocER] Found " + controllers.size() + " controllers.");
-            for (Object controllerBean : controllers.values()) {
-                Class<?> controllerClass = org.springframework.aop.support.AopUtils.getTargetClass(controllerBean);
-                String controllerName = controllerClass.getSimpleName();
-
-                String basePath = "";
-                if (controllerClass.isAnnotationPresent(RequestMapping.class)) {
-                    RequestMapping requestMapping = controllerClass.getAnnotation(RequestMapping.class);
-                    if (requestMapping.value().length > 0) {
-                        basePath = requestMapping.value()[0];
-                    }
-                }
+            Method[] methods = controllerClass.getDeclaredMethods();
+            Arrays.sort(methods, METHOD_ORDER);
+            for (Method method : methods) {
+                parseMethod(method, basePath, null).ifPresent(endpointInfos::add);
+            }
+        }
 
-                List<EndpointInfo> endpointInfos = new ArrayList<>();
-                for (Method method : controllerClass.getDeclaredMethods()) {
-                    parseMethod(method, basePath).ifPresent(endpointInfos::add);
-                }
+        return new ControllerInfo(controllerName, basePath, endpointInfos);
+    }
 
-                controllerInfos.add(new ControllerInfo(controllerName, basePath, endpointInfos));
+    private static String basePathOf(Class<?> controllerClass) {
+        String basePath = "";
+        if (controllerClass.isAnnotationPresent(RequestMapping.class)) {
+            RequestMapping requestMapping = controllerClass.getAnnotation(RequestMapping.class);
+            if (requestMapping.value().length > 0) {
+                basePath = requestMapping.value()[0];
             }
         }
-        System.out.println("--- [AutoDocER] Scan Complete ---");
-        return new ApiDocumentationResult(serverInfos, controllerInfos);
+        return basePath;
+    }
+
+    /**
+     * Looks up the indexed handler methods by signature, sorted like a full
+     * scan would visit them. The index is trusted to list every handler, so
+     * the class's other methods are not looked at.
+     * @return The handlers, or null when the index has no entry for the class
+     *         or one of its handlers cannot be found (e.g. it was renamed and
+     *         the class recompiled without the processor), and it has to be scanned.
+     */
+    private Map<Method, EndpointIndex.Handler> indexedHandlers(Class<?> controllerClass, List<EndpointIndex.Handler> handlers) {
+        if (handlers == null) {
+            return null;
+        }
+        ClassLoader classLoader = controllerClass.getClassLoader();
+        Map<Method, EndpointIndex.Handler> methods = new TreeMap<>(METHOD_ORDER);
+        try {
+            for (EndpointIndex.Handler handler : handlers) {
+                Class<?>[] parameterTypes = new Class<?>[handler.parameters().size()];
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    parameterTypes[i] = EndpointIndex.resolveType(handler.parameters().get(i).type(), classLoader);
+                }
+                methods.put(controllerClass.getDeclaredMethod(handler.methodName(), parameterTypes), handler);
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.out.println("--- [AutoDocER] Endpoint index is out of date for " + controllerClass.getName()
+                    + " (" + e.getMessage() + "), scanning it instead.");
+            return null;
+        }
+        return methods;
     }
 
     private List<ServerData> extractServerInfo(ApplicationContext context) {
@@ -81,21 +276,7 @@ public class DocumentationParser {
             }
 
             if (mainAppClass != null) {
-                System.out.println("--- [AutoDocER] Found main application class: " + mainAppClass.getName());
-
-                // Use AnnotationUtils.findAnnotation which searches the class hierarchy
-                ApiServers apiServersAnnotation = AnnotationUtils.findAnnotation(mainAppClass, ApiServers.class);
-
-                if (apiServersAnnotation != null) {
-                    System.out.println("--- [AutoDocER] Found @ApiServers annotation on " + mainAppClass.getSimpleName());
-                    for (ServerInfo serverInfoAnnotation : apiServersAnnotation.value()) {
-                        servers.add(new ServerData(serverInfoAnnotation.url(), serverInfoAnnotation.description()));
-                        System.out.println("    -> Server Added: URL=" + serverInfoAnnotation.url() + ", Desc=" + serverInfoAnnotation.description());
-                    }
-                } else {
-                    System.out.println("--- [AutoDocER] No @ApiServers annotation found on main application class: " + mainAppClass.getSimpleName());
-                    servers.add(new ServerData("/", "Default Server (Relative Path)"));
-                }
+                servers.addAll(extractServerInfo(mainAppClass));
             } else {
                 System.out.println("--- [AutoDocER] Could not determine type for main application bean: " + mainAppBeanName);
                 servers.add(new ServerData("/", "Default Server (Relative Path)"));
@@ -108,11 +289,40 @@ public class DocumentationParser {
         return servers;
     }
 
-    private Optional<EndpointInfo> parseMethod(Method method, String basePath) {
+    private List<ServerData> extractServerInfo(Class<?> mainAppClass) {
+        List<ServerData> servers = new ArrayList<>();
+        System.out.println("--- [AutoDocER] Found main application class: " + mainAppClass.getName());
+
+        // Use AnnotationUtils.findAnnotation which searches the class hierarchy
+        ApiServers apiServersAnnotation = AnnotationUtils.findAnnotation(mainAppClass, ApiServers.class);
+
+        if (apiServersAnnotation != null) {
+            System.out.println("--- [AutoDocER] Found @ApiServers annotation on " + mainAppClass.getSimpleName());
+            for (ServerInfo serverInfoAnnotation : apiServersAnnotation.value()) {
+                servers.add(new ServerData(serverInfoAnnotation.url(), serverInfoAnnotation.description()));
+                System.out.println("    -> Server Added: URL=" + serverInfoAnnotation.url() + ", Desc=" + serverInfoAnnotation.description());
+            }
+        } else {
+            System.out.println("--- [AutoDocER] No @ApiServers annotation found on main application class: " + mainAppClass.getSimpleName());
+            servers.add(new ServerData("/", "Default Server (Relative Path)"));
+        }
+        return servers;
+    }
+
+    /**
+     * @param indexed The method's entry in the endpoint index, or null when it
+     *                was not indexed. Its HTTP method and parameter bindings are
+     *                then used instead of reading them from the annotations.
+     */
+    private Optional<EndpointInfo> parseMethod(Method method, String basePath, EndpointIndex.Handler indexed) {
         String httpMethod = null;
         String path = "";
 
-        if (method.isAnnotationPresent(GetMapping.class)) {
+        if (indexed != null) {
+            httpMethod = indexed.httpMethod();
+            String[] paths = mappedPaths(method, httpMethod);
+            if (paths != null && paths.length > 0) path = paths[0];
+        } else if (method.isAnnotationPresent(GetMapping.class)) {
             httpMethod = "GET";
             GetMapping annotation = method.getAnnotation(GetMapping.class);
             if (annotation.value().length > 0) path = annotation.value()[0];
@@ -147,12 +357,17 @@ public class DocumentationParser {
         }
 
         List<ParameterInfo> parameterInfos = new ArrayList<>();
-        for (Parameter parameter : method.getParameters()) {
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
             Object paramType = parseTypeWithGenerics(parameter.getParameterizedType(), parameter.getType());
             String sourceType = "Unknown";
             boolean isRequired = true;
 
-            if (parameter.isAnnotationPresent(RequestBody.class)) {
+            if (indexed != null) {
+                sourceType = indexed.parameters().get(i).sourceType();
+                isRequired = indexed.parameters().get(i).required();
+            } else if (parameter.isAnnotationPresent(RequestBody.class)) {
                 sourceType = "RequestBody";
                 isRequired = parameter.getAnnotation(RequestBody.class).required();
             } else if (parameter.isAnnotationPresent(PathVariable.class)) {
@@ -166,22 +381,8 @@ public class DocumentationParser {
 
         Object responseType = parseTypeWithGenerics(method.getGenericReturnType(), method.getReturnType());
 
-        List<String> paramContextStrings = parameterInfos.stream()
-                .map(p -> String.format("%s %s %s",
-                        p.sourceType(),
-                        formatTypeForContext(p.type()),
-                        p.name()))
-                .collect(Collectors.toList());
-
-        String responseContextString = formatTypeForContext(responseType);
-
-        EndpointContext context = new EndpointContext(
-                method.getName(),
-                httpMethod,
-                fullPath,
-                paramContextStrings,
-                responseContextString
-        );
+        EndpointContext context = buildEndpointContext(
+                method.getName(), httpMethod, fullPath, parameterInfos, responseType);
 
         System.out.println("--- [AutoDocER] Generating description for: " + method.getName());
         AiGenerationResult aiResult = aiService.generateDescription(context);
@@ -199,7 +400,64 @@ public class DocumentationParser {
         return Optional.of(endpointInfo);
     }
 
-    private String formatTypeForContext(Object type) {
+    /**
+     * The HTTP method of a handler, checking the mapping annotations in the
+     * same order as parseMethod; null if the method is not a handler.
+     */
+    private static String httpMethodOf(Method method) {
+        if (method.isAnnotationPresent(GetMapping.class)) return "GET";
+        if (method.isAnnotationPresent(PostMapping.class)) return "POST";
+        if (method.isAnnotationPresent(PutMapping.class)) return "PUT";
+        if (method.isAnnotationPresent(DeleteMapping.class)) return "DELETE";
+        if (method.isAnnotationPresent(PatchMapping.class)) return "PATCH";
+        return null;
+    }
+
+    /**
+     * The paths of the mapping annotation for the given HTTP method, or null
+     * if the method does not carry it.
+     */
+    private static String[] mappedPaths(Method method, String httpMethod) {
+        return switch (httpMethod) {
+            case "GET" -> method.isAnnotationPresent(GetMapping.class) ? method.getAnnotation(GetMapping.class).value() : null;
+            case "POST" -> method.isAnnotationPresent(PostMapping.class) ? method.getAnnotation(PostMapping.class).value() : null;
+            case "PUT" -> method.isAnnotationPresent(PutMapping.class) ? method.getAnnotation(PutMapping.class).value() : null;
+            case "DELETE" -> method.isAnnotationPresent(DeleteMapping.class) ? method.getAnnotation(DeleteMapping.class).value() : null;
+            case "PATCH" -> method.isAnnotationPresent(PatchMapping.class) ? method.getAnnotation(PatchMapping.class).value() : null;
+            default -> null;
+        };
+    }
+
+    /**
+     * Rebuilds the context given to the AI service from an already parsed endpoint,
+     * so descriptions can be (re)generated later without scanning again.
+     */
+    public static EndpointContext toEndpointContext(EndpointInfo endpoint) {
+        return buildEndpointContext(endpoint.methodName(), endpoint.httpMethod(), endpoint.path(),
+                endpoint.parameters(), endpoint.responseType());
+    }
+
+    private static EndpointContext buildEndpointContext(String methodName, String httpMethod, String fullPath,
+                                                        List<ParameterInfo> parameterInfos, Object responseType) {
+        List<String> paramContextStrings = parameterInfos.stream()
+                .map(p -> String.format("%s %s %s",
+                        p.sourceType(),
+                        formatTypeForContext(p.type()),
+                        p.name()))
+                .collect(Collectors.toList());
+
+        String responseContextString = formatTypeForContext(responseType);
+
+        return new EndpointContext(
+                methodName,
+                httpMethod,
+                fullPath,
+                paramContextStrings,
+                responseContextString
+        );
+    }
+
+    private static String formatTypeForContext(Object type) {
         if (type instanceof String typeName) {
             return typeName;
         }
@@ -0,0 +1,183 @@
+package com.autodocer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compile-time index of the handler methods of every @RestController,
+ * written by the endpoint index annotation processor. The controllers still
+ * come from the application context, but for a controller with an entry the
+ * parser trusts the index: it looks up only the listed handlers by signature
+ * and takes their HTTP method and parameter bindings from the index instead
+ * of reading the annotations. A controller without an entry, or with a
+ * listed handler that cannot be found, is scanned as usual.
+ * <p>
+ * The file is line based. A controller is its binary class name on a line
+ * of its own, followed by one tab-indented line per handler:
+ * <pre>
+ * com.example.UserController
+ * 	getUser GET com.example.UserDto java.lang.Long@PathVariable java.lang.String@RequestParam?
+ * </pre>
+ * i.e. method name, HTTP method, erased return type and the erased type of
+ * each parameter, with the binding annotation the parser reads after an
+ * {@code @} and a trailing {@code ?} when the binding is not required.
+ */
+public final class EndpointIndex {
+
+    public static final String LOCATION = "META-INF/autodocer/endpoints.idx";
+    private static final String HEADER = "# AutoDocER endpoint index v1";
+
+    public record Parameter(String type, String sourceType, boolean required) {}
+
+    public record Handler(String methodName, String httpMethod, String returnType, List<Parameter> parameters) {}
+
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+            "boolean", boolean.class, "byte", byte.class, "char", char.class, "short", short.class,
+            "int", int.class, "long", long.class, "float", float.class, "double", double.class,
+            "void", void.class);
+
+    // Keyed by binary class name, sorted so the file is stable across builds
+    private final Map<String, List<Handler>> controllers = new TreeMap<>();
+
+    public Map<String, List<Handler>> controllers() {
+        return Collections.unmodifiableMap(controllers);
+    }
+
+    public List<Handler> handlers(String controllerClassName) {
+        return controllers.get(controllerClassName);
+    }
+
+    public void put(String controllerClassName, List<Handler> handlers) {
+        controllers.put(controllerClassName, List.copyOf(handlers));
+    }
+
+    public void remove(String controllerClassName) {
+        controllers.remove(controllerClassName);
+    }
+
+    public boolean isEmpty() {
+        return controllers.isEmpty();
+    }
+
+    /**
+     * Loads and merges every index on the class path, one per jar or output
+     * directory that was compiled with the processor.
+     * @return The merged index, or null if there is none.
+     */
+    public static EndpointIndex load(ClassLoader classLoader) {
+        EndpointIndex index = null;
+        try {
+            Enumeration<URL> resources = classLoader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                try (InputStream in = resource.openStream()) {
+                    EndpointIndex part = read(new InputStreamReader(in, StandardCharsets.UTF_8));
+                    if (index == null) {
+                        index = part;
+                    } else {
+                        index.controllers.putAll(part.controllers);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("--- [AutoDocER] Ignoring unreadable endpoint index " + resource + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("--- [AutoDocER] Could not look up " + LOCATION + ": " + e.getMessage());
+        }
+        return index;
+    }
+
+    public static EndpointIndex read(Reader reader) throws IOException {
+        EndpointIndex index = new EndpointIndex();
+        BufferedReader lines = new BufferedReader(reader);
+        String controller = null;
+        List<Handler> handlers = null;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.charAt(0) != '\t') {
+                controller = line.trim();
+                handlers = new ArrayList<>();
+                index.controllers.put(controller, handlers);
+                continue;
+            }
+            if (controller == null) {
+                throw new IllegalArgumentException("Handler line before any controller: " + line);
+            }
+            String[] tokens = line.trim().split(" ");
+            if (tokens.length < 3) {
+                throw new IllegalArgumentException("Malformed handler line: " + line);
+            }
+            List<Parameter> parameters = new ArrayList<>(tokens.length - 3);
+            for (int i = 3; i < tokens.length; i++) {
+                parameters.add(parseParameter(tokens[i]));
+            }
+            handlers.add(new Handler(tokens[0], tokens[1], tokens[2], List.copyOf(parameters)));
+        }
+        index.controllers.replaceAll((name, list) -> List.copyOf(list));
+        return index;
+    }
+
+    public void write(Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Map.Entry<String, List<Handler>> controller : controllers.entrySet()) {
+            writer.write(controller.getKey());
+            writer.write('\n');
+            for (Handler handler : controller.getValue()) {
+                StringBuilder line = new StringBuilder("\t")
+                        .append(handler.methodName()).append(' ')
+                        .append(handler.httpMethod()).append(' ')
+                        .append(handler.returnType());
+                for (Parameter parameter : handler.parameters()) {
+                    line.append(' ').append(parameter.type());
+                    if (!"Unknown".equals(parameter.sourceType())) {
+                        line.append('@').append(parameter.sourceType());
+                        if (!parameter.required()) {
+                            line.append('?');
+                        }
+                    }
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+    }
+
+    private static Parameter parseParameter(String token) {
+        int at = token.indexOf('@');
+        if (at < 0) {
+            return new Parameter(token, "Unknown", true);
+        }
+        boolean optional = token.endsWith("?");
+        String sourceType = token.substring(at + 1, optional ? token.length() - 1 : token.length());
+        return new Parameter(token.substring(0, at), sourceType, !optional);
+    }
+
+    /**
+     * Resolves a type name as written in the index (a binary class name, a
+     * primitive, or either followed by one or more "[]") without initializing it.
+     */
+    public static Class<?> resolveType(String typeName, ClassLoader classLoader) throws ClassNotFoundException {
+        if (typeName.endsWith("[]")) {
+            Class<?> componentType = resolveType(typeName.substring(0, typeName.length() - 2), classLoader);
+            return Array.newInstance(componentType, 0).getClass();
+        }
+        Class<?> primitive = PRIMITIVES.get(typeName);
+        return primitive != null ? primitive : Class.forName(typeName, false, classLoader);
+    }
+}
@@ -0,0 +1,89 @@
+package com.autodocer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+
+/**
+ * Computes RFC 6902 JSON Patch documents between two JSON trees.
+ * <p>
+ * Only "add", "remove" and "replace" are emitted. Objects are compared
+ * member by member; arrays element by element at the same index, with the
+ * surplus removed from the end or appended, which suits the short, mostly
+ * stable arrays of an OpenAPI document (parameters, tags, required).
+ */
+public final class JsonPatch {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private JsonPatch() {
+    }
+
+    /**
+     * @return The operations that turn source into target, empty when they are equal.
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode operations = NODES.arrayNode();
+        diff(source, target, "", operations);
+        return operations;
+    }
+
+    private static void diff(JsonNode source, JsonNode target, String path, ArrayNode operations) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            for (Map.Entry<String, JsonNode> field : source.properties()) {
+                if (!target.has(field.getKey())) {
+                    operations.add(operation("remove", path + "/" + escape(field.getKey()), null));
+                }
+            }
+            for (Map.Entry<String, JsonNode> field : target.properties()) {
+                String fieldPath = path + "/" + escape(field.getKey());
+                JsonNode sourceValue = source.get(field.getKey());
+                if (sourceValue == null) {
+                    operations.add(operation("add", fieldPath, field.getValue()));
+                } else {
+                    diff(sourceValue, field.getValue(), fieldPath, operations);
+                }
+            }
+            return;
+        }
+        if (source.isArray() && target.isArray()) {
+            int common = Math.min(source.size(), target.size());
+            for (int i = 0; i < common; i++) {
+                diff(source.get(i), target.get(i), path + "/" + i, operations);
+            }
+            // Remove from the end so the indices of earlier removals stay valid
+            for (int i = source.size() - 1; i >= common; i--) {
+                operations.add(operation("remove", path + "/" + i, null));
+            }
+            for (int i = common; i < target.size(); i++) {
+                operations.add(operation("add", path + "/" + i, target.get(i)));
+            }
+            return;
+        }
+        operations.add(operation("replace", path, target));
+    }
+
+    private static ObjectNode operation(String op, String path, JsonNode value) {
+        ObjectNode operation = NODES.objectNode();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (value != null) {
+            operation.set("value", value);
+        }
+        return operation;
+    }
+
+    /**
+     * Escapes a member name for use as a JSON Pointer (RFC 6901) reference token.
+     * OpenAPI path keys such as "/users/{id}" become "~1users~1{id}".
+     */
+    static String escape(String name) {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+}
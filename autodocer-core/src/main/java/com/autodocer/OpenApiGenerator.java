@@ -3,178 +3,431 @@ package com.autodocer;
 import com.autodocer.DocumentationParser.ApiDocumentationResult;
 import com.autodocer.DTO.*;
 import com.autodocer.DTO.ValidationConstraints;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Writes the OpenAPI document for a parsed application. The document is
+ * streamed through a Jackson {@link JsonGenerator} straight from the
+ * controller/endpoint model, so no intermediate JSON tree is built and memory
+ * use does not grow with the size of the spec beyond what the caller buffers.
+ */
 public class OpenApiGenerator {
 
-    private final ObjectMapper objectMapper;
-
-    public OpenApiGenerator() {
-        this.objectMapper = new ObjectMapper();
-    }
+    private static final String SCHEMA_REF_PREFIX = "#/components/schemas/";
+    // Written by SchemaParser where it cuts a cycle
+    private static final String CIRCULAR_REFERENCE_PREFIX = "Circular Reference to ";
 
+    private final ObjectMapper objectMapper;
 
-    public String generate(ApiDocumentationResult documentationResult) {
-        ObjectNode root = objectMapper.createObjectNode();
-
-        // 1. Add basic OpenAPI info
-        root.put("openapi", "3.0.0");
-        ObjectNode infoNode = root.putObject("info");
-        infoNode.put("title", "Auto-Generated API Documentation");
-        infoNode.put("version", "1.0.0"); // Consider making this configurable later
-        infoNode.put("description", "Generated by AutoDocER");
-
-        ArrayNode serversNode = root.putArray("servers");
-        List<ServerData> servers = documentationResult.servers(); // Get servers from the result
-        if (servers == null || servers.isEmpty()) {
-            ObjectNode defaultServer = serversNode.addObject();
-            defaultServer.put("url", "/");
-            defaultServer.put("description", "Default Server (Relative Path)");
-        } else {
-            for (ServerData server : servers) {
-                ObjectNode serverNode = serversNode.addObject();
-                serverNode.put("url", server.url());
-                if (server.description() != null && !server.description().isEmpty()) {
-                    serverNode.put("description", server.description());
+    /**
+     * Object schemas referenced by one document. Each schema is emitted once
+     * under components/schemas and referenced with $ref. Names are the simple
+     * class name unless two classes share it, in which case both use their
+     * qualified name, so a name never depends on which class was seen first.
+     */
+    private static final class SchemaComponents {
+        private final Map<String, String> namesByQualifiedName = new HashMap<>();
+        private final Set<String> uniqueSimpleNames = new HashSet<>();
+        private final Map<String, SchemaInfo> schemasByName = new TreeMap<>();
+
+        SchemaComponents(List<ControllerInfo> controllers) {
+            Map<String, Set<String>> qualifiedNamesBySimpleName = new HashMap<>();
+            Set<String> seen = new HashSet<>();
+            for (ControllerInfo controller : controllers) {
+                for (EndpointInfo endpoint : controller.endpoints()) {
+                    for (ParameterInfo param : endpoint.parameters()) {
+                        collect(param.type(), seen, qualifiedNamesBySimpleName);
+                    }
+                    collect(endpoint.responseType(), seen, qualifiedNamesBySimpleName);
+                }
+            }
+            qualifiedNamesBySimpleName.forEach((simpleName, qualifiedNames) -> {
+                for (String qualifiedName : qualifiedNames) {
+                    namesByQualifiedName.put(qualifiedName,
+                            qualifiedNames.size() == 1 ? simpleName : qualifiedName.replace('$', '.'));
+                }
+                if (qualifiedNames.size() == 1) {
+                    uniqueSimpleNames.add(simpleName);
+                }
+            });
+
+            // The first schema seen for a name (in document order) is the one emitted
+            for (ControllerInfo controller : controllers) {
+                for (EndpointInfo endpoint : controller.endpoints()) {
+                    for (ParameterInfo param : endpoint.parameters()) {
+                        if (!"RequestBody".equals(param.sourceType()) && !"Unknown".equals(param.sourceType())) {
+                            register(param.type());
+                        }
+                    }
+                    requestBodyOf(endpoint).ifPresent(p -> register(p.type()));
+                    if (hasResponseBody(endpoint)) {
+                        register(endpoint.responseType());
+                    }
                 }
             }
         }
 
-        // 2. Create the 'paths' object and populate it
-        ObjectNode pathsNode = root.putObject("paths");
-        List<ControllerInfo> apiInfo = documentationResult.controllers(); // Extract controllers
-        for (ControllerInfo controller : apiInfo) {
-            for (EndpointInfo endpoint : controller.endpoints()) {
-                ObjectNode pathItemNode;
-                if (pathsNode.has(endpoint.path())) {
-                    pathItemNode = (ObjectNode) pathsNode.get(endpoint.path());
-                } else {
-                    pathItemNode = pathsNode.putObject(endpoint.path());
-                }
+        String nameOf(SchemaInfo schema) {
+            return namesByQualifiedName.getOrDefault(schema.qualifiedName(), schema.className());
+        }
 
-                ObjectNode operationNode = pathItemNode.putObject(endpoint.httpMethod().toLowerCase());
-                // Use summary/description if available, otherwise fallback to method name
-                operationNode.put("summary", endpoint.summary() != null ? endpoint.summary() : endpoint.methodName());
-                if (endpoint.description() != null) {
-                    operationNode.put("description", endpoint.description());
-                }
-                operationNode.put("operationId", endpoint.methodName() + "_" + controller.className());
-                operationNode.putArray("tags").add(controller.className());
-
-                ArrayNode parametersNode = operationNode.putArray("parameters");
-                for (ParameterInfo param : endpoint.parameters()) {
-                    // Exclude RequestBody and Unknown parameters from the main parameters list
-                    if (!"RequestBody".equals(param.sourceType()) && !"Unknown".equals(param.sourceType())) {
-                        buildParameterNode(parametersNode.addObject(), param);
+        private void register(Object type) {
+            if (type instanceof SchemaInfo schema) {
+                if (schemasByName.putIfAbsent(nameOf(schema), schema) == null) {
+                    for (FieldInfo field : schema.fields()) {
+                        register(field.type());
                     }
                 }
+            } else if (type instanceof ArraySchemaInfo arraySchema) {
+                register(arraySchema.itemType());
+            }
+        }
 
-                // Handle RequestBody separately
-                endpoint.parameters().stream()
-                        .filter(p -> "RequestBody".equals(p.sourceType()))
-                        .findFirst()
-                        .ifPresent(p -> buildRequestBodyNode(operationNode.putObject("requestBody"), p));
-
-                ObjectNode responsesNode = operationNode.putObject("responses");
-                ObjectNode response200 = responsesNode.putObject("200");
-                response200.put("description", "Successful operation");
-
-                if (endpoint.responseType() != null
-                        && !(endpoint.responseType() instanceof String responseString
-                        && (responseString.equalsIgnoreCase("void") || responseString.isEmpty())))
-                {
-                    ObjectNode contentNode = response200.putObject("content").putObject("application/json");
-                    contentNode.set("schema", buildSchemaNode(endpoint.responseType()));
+        private static void collect(Object type, Set<String> seen, Map<String, Set<String>> qualifiedNamesBySimpleName) {
+            if (type instanceof SchemaInfo schema) {
+                if (!seen.add(schema.qualifiedName())) {
+                    return;
+                }
+                qualifiedNamesBySimpleName.computeIfAbsent(schema.className(), k -> new HashSet<>()).add(schema.qualifiedName());
+                for (FieldInfo field : schema.fields()) {
+                    collect(field.type(), seen, qualifiedNamesBySimpleName);
                 }
+            } else if (type instanceof ArraySchemaInfo arraySchema) {
+                collect(arraySchema.itemType(), seen, qualifiedNamesBySimpleName);
             }
         }
+    }
+
+    public OpenApiGenerator() {
+        this.objectMapper = new ObjectMapper();
+    }
+
+
+    public String generate(ApiDocumentationResult documentationResult) {
+        return new String(generateBytes(documentationResult), StandardCharsets.UTF_8);
+    }
 
+    /**
+     * Generates the pretty-printed OpenAPI document as UTF-8 bytes, so callers
+     * that cache or compress the result do not need an intermediate String copy.
+     */
+    public byte[] generateBytes(ApiDocumentationResult documentationResult) {
+        return generateBytes(documentationResult, true);
+    }
+
+    /**
+     * @param pretty Whether to indent the output; compact output is roughly a third smaller.
+     */
+    public byte[] generateBytes(ApiDocumentationResult documentationResult, boolean pretty) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
         try {
-            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+            write(documentationResult, buffer, pretty);
+            return buffer.toByteArray();
         } catch (Exception e) {
             e.printStackTrace();
             // Provide a more informative error message in the JSON
-            return "{\"openapi\": \"3.0.0\", \"info\": {\"title\": \"Error\"}, \"paths\": {}, \"error\": \"Could not generate OpenAPI spec: " + e.getMessage().replace("\"", "'") + "\"}";
+            return ("{\"openapi\": \"3.0.0\", \"info\": {\"title\": \"Error\"}, \"paths\": {}, \"error\": \"Could not generate OpenAPI spec: " + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
         }
     }
 
-    private void buildParameterNode(ObjectNode paramNode, ParameterInfo param) {
-        paramNode.put("name", param.name());
-        paramNode.put("in", param.sourceType().equalsIgnoreCase("PathVariable") ? "path" : "query"); // Assume path or query
-        paramNode.put("required", param.isRequired());
-        paramNode.set("schema", buildSchemaNode(param.type()));
+    /**
+     * Streams the OpenAPI document to the given stream. The stream is flushed
+     * but not closed.
+     */
+    public void write(ApiDocumentationResult documentationResult, OutputStream out, boolean pretty) throws IOException {
+        List<ControllerInfo> apiInfo = documentationResult.controllers(); // Extract controllers
+        SchemaComponents components = new SchemaComponents(apiInfo);
 
-    }
+        // Group operations by path up front: the JSON has to be written in one pass.
+        // A later endpoint with the same path and method replaces the earlier one.
+        Map<String, Map<String, Map.Entry<ControllerInfo, EndpointInfo>>> operationsByPath = new LinkedHashMap<>();
+        for (ControllerInfo controller : apiInfo) {
+            for (EndpointInfo endpoint : controller.endpoints()) {
+                operationsByPath.computeIfAbsent(endpoint.path(), k -> new LinkedHashMap<>())
+                        .put(endpoint.httpMethod().toLowerCase(), Map.entry(controller, endpoint));
+            }
+        }
 
-    private void buildRequestBodyNode(ObjectNode requestBodyNode, ParameterInfo param) {
-        requestBodyNode.put("description", "Request body"); // Simple description
-        requestBodyNode.put("required", param.isRequired());
-        ObjectNode contentNode = requestBodyNode.putObject("content").putObject("application/json");
-        contentNode.set("schema", buildSchemaNode(param.type()));
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (pretty) {
+                json.setPrettyPrinter(new DefaultPrettyPrinter());
+            }
+            json.writeStartObject();
+
+            // 1. Add basic OpenAPI info
+            json.writeStringField("openapi", "3.0.0");
+            json.writeObjectFieldStart("info");
+            json.writeStringField("title", "Auto-Generated API Documentation");
+            json.writeStringField("version", "1.0.0"); // Consider making this configurable later
+            json.writeStringField("description", "Generated by AutoDocER");
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("servers");
+            List<ServerData> servers = documentationResult.servers(); // Get servers from the result
+            if (servers == null || servers.isEmpty()) {
+                json.writeStartObject();
+                json.writeStringField("url", "/");
+                json.writeStringField("description", "Default Server (Relative Path)");
+                json.writeEndObject();
+            } else {
+                for (ServerData server : servers) {
+                    json.writeStartObject();
+                    json.writeStringField("url", server.url());
+                    if (server.description() != null && !server.description().isEmpty()) {
+                        json.writeStringField("description", server.description());
+                    }
+                    json.writeEndObject();
+                }
+            }
+            json.writeEndArray();
+
+            // 2. Write the 'paths' object
+            json.writeObjectFieldStart("paths");
+            for (Map.Entry<String, Map<String, Map.Entry<ControllerInfo, EndpointInfo>>> path : operationsByPath.entrySet()) {
+                json.writeObjectFieldStart(path.getKey());
+                for (Map.Entry<String, Map.Entry<ControllerInfo, EndpointInfo>> operation : path.getValue().entrySet()) {
+                    json.writeFieldName(operation.getKey());
+                    writeOperation(json, operation.getValue().getKey(), operation.getValue().getValue(), components);
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+
+            // 3. Shared object schemas, sorted by name
+            if (!components.schemasByName.isEmpty()) {
+                json.writeObjectFieldStart("components");
+                json.writeObjectFieldStart("schemas");
+                for (Map.Entry<String, SchemaInfo> schema : components.schemasByName.entrySet()) {
+                    json.writeFieldName(schema.getKey());
+                    writeObjectSchema(json, schema.getValue(), components);
+                }
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+
+            json.writeEndObject();
+        }
+        out.flush();
     }
 
-    private ObjectNode buildSchemaNode(Object type) {
-        ObjectNode schemaNode = objectMapper.createObjectNode();
+    private void writeOperation(JsonGenerator json, ControllerInfo controller, EndpointInfo endpoint,
+                                SchemaComponents components) throws IOException {
+        json.writeStartObject();
+        // Use summary/description if available, otherwise fallback to method name
+        json.writeStringField("summary", endpoint.summary() != null ? endpoint.summary() : endpoint.methodName());
+        if (endpoint.description() != null) {
+            json.writeStringField("description", endpoint.description());
+        }
+        json.writeStringField("operationId", endpoint.methodName() + "_" + controller.className());
+        json.writeArrayFieldStart("tags");
+        json.writeString(controller.className());
+        json.writeEndArray();
+
+        json.writeArrayFieldStart("parameters");
+        for (ParameterInfo param : endpoint.parameters()) {
+            // Exclude RequestBody and Unknown parameters from the main parameters list
+            if (!"RequestBody".equals(param.sourceType()) && !"Unknown".equals(param.sourceType())) {
+                writeParameter(json, param, components);
+            }
+        }
+        json.writeEndArray();
 
-        if (type instanceof SchemaInfo schema) {
-            schemaNode.put("type", "object");
+        // Handle RequestBody separately
+        Optional<ParameterInfo> requestBody = requestBodyOf(endpoint);
+        if (requestBody.isPresent()) {
+            json.writeFieldName("requestBody");
+            writeRequestBody(json, requestBody.get(), components);
+        }
 
-            if (schema.requiredFields() != null && !schema.requiredFields().isEmpty()) {
-                ArrayNode requiredNode = schemaNode.putArray("required");
-                for (String reqField : schema.requiredFields()) {
-                    requiredNode.add(reqField);
-                }
-            }
+        json.writeObjectFieldStart("responses");
+        json.writeObjectFieldStart("200");
+        json.writeStringField("description", "Successful operation");
+        if (hasResponseBody(endpoint)) {
+            json.writeObjectFieldStart("content");
+            json.writeObjectFieldStart("application/json");
+            json.writeFieldName("schema");
+            writeSchema(json, endpoint.responseType(), null, components);
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+        json.writeEndObject();
 
-            ObjectNode propertiesNode = schemaNode.putObject("properties");
-            for (FieldInfo field : schema.fields()) {
+        json.writeEndObject();
+    }
 
+    private static Optional<ParameterInfo> requestBodyOf(EndpointInfo endpoint) {
+        return endpoint.parameters().stream()
+                .filter(p -> "RequestBody".equals(p.sourceType()))
+                .findFirst();
+    }
 
-                ObjectNode fieldSchemaNode = buildSchemaNode(field.type());
-                if (field.constraints() != null) {
-                    ValidationConstraints constraints = field.constraints();
+    private static boolean hasResponseBody(EndpointInfo endpoint) {
+        return endpoint.responseType() != null
+                && !(endpoint.responseType() instanceof String responseString
+                && (responseString.equalsIgnoreCase("void") || responseString.isEmpty()));
+    }
 
-                    // Note: OpenAPI uses "minimum" and "maximum"
-                    if (constraints.min() != null) fieldSchemaNode.put("minimum", constraints.min());
-                    if (constraints.max() != null) fieldSchemaNode.put("maximum", constraints.max());
+    private void writeParameter(JsonGenerator json, ParameterInfo param, SchemaComponents components) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", param.name());
+        json.writeStringField("in", param.sourceType().equalsIgnoreCase("PathVariable") ? "path" : "query"); // Assume path or query
+        json.writeBooleanField("required", param.isRequired());
+        json.writeFieldName("schema");
+        writeSchema(json, param.type(), null, components);
+        json.writeEndObject();
+    }
 
-                    if (constraints.minLength() != null) fieldSchemaNode.put("minLength", constraints.minLength());
-                    if (constraints.maxLength() != null) fieldSchemaNode.put("maxLength", constraints.maxLength());
+    private void writeRequestBody(JsonGenerator json, ParameterInfo param, SchemaComponents components) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("description", "Request body"); // Simple description
+        json.writeBooleanField("required", param.isRequired());
+        json.writeObjectFieldStart("content");
+        json.writeObjectFieldStart("application/json");
+        json.writeFieldName("schema");
+        writeSchema(json, param.type(), null, components);
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeEndObject();
+    }
 
-                    if (constraints.pattern() != null) fieldSchemaNode.put("pattern", constraints.pattern());
-                    if (constraints.format() != null) fieldSchemaNode.put("format", constraints.format());
-                }
+    /**
+     * Writes the schema for a type, with the field's validation constraints if
+     * any. Object schemas are written as a $ref to their components entry.
+     */
+    private void writeSchema(JsonGenerator json, Object type, ValidationConstraints constraints,
+                             SchemaComponents components) throws IOException {
+        String ref = null;
+        if (type instanceof SchemaInfo schema) {
+            ref = SCHEMA_REF_PREFIX + components.nameOf(schema);
+        } else if (type instanceof String typeName && typeName.startsWith(CIRCULAR_REFERENCE_PREFIX)
+                && components.uniqueSimpleNames.contains(typeName.substring(CIRCULAR_REFERENCE_PREFIX.length()))) {
+            // A cut cycle can be expressed exactly once schemas are referenced by name
+            ref = SCHEMA_REF_PREFIX + typeName.substring(CIRCULAR_REFERENCE_PREFIX.length());
+        }
 
-                propertiesNode.set(field.name(), fieldSchemaNode);
+        if (ref != null) {
+            json.writeStartObject();
+            if (constraints != null) {
+                // Siblings of $ref are ignored, so constrain the referenced schema through allOf
+                json.writeArrayFieldStart("allOf");
+                json.writeStartObject();
+                json.writeStringField("$ref", ref);
+                json.writeEndObject();
+                json.writeEndArray();
+                writeFields(json, constraintsOf(constraints));
+            } else {
+                json.writeStringField("$ref", ref);
             }
+            json.writeEndObject();
         }
         else if (type instanceof ArraySchemaInfo arraySchema) {
-            schemaNode.put("type", "array");
-            // Recursively build the schema for the items in the array
-            ObjectNode itemsSchema = buildSchemaNode(arraySchema.itemType());
-            schemaNode.set("items", itemsSchema);
-            System.out.println("     -> Building array schema with item type: " + arraySchema.itemType());
+            json.writeStartObject();
+            json.writeStringField("type", "array");
+            // Recursively write the schema for the items in the array
+            json.writeFieldName("items");
+            writeSchema(json, arraySchema.itemType(), null, components);
+            if (constraints != null) {
+                writeFields(json, constraintsOf(constraints));
+            }
+            json.writeEndObject();
         }
-        else if (type instanceof String typeName) {
-            mapSimpleTypeToSchema(schemaNode, typeName);
+        else {
+            Map<String, Object> schemaFields = new LinkedHashMap<>();
+            if (type instanceof String typeName) {
+                mapSimpleTypeToSchema(schemaFields, typeName);
+            } else if (type != null) {
+                schemaFields.put("type", "string");
+                schemaFields.put("description", "Unknown complex type: " + type.getClass().getName());
+            } else {
+                schemaFields.put("type", "string");
+                schemaFields.put("description", "Unknown null type");
+            }
+            // A constraint such as format overrides the value derived from the type, in place
+            if (constraints != null) {
+                schemaFields.putAll(constraintsOf(constraints));
+            }
+            json.writeStartObject();
+            writeFields(json, schemaFields);
+            json.writeEndObject();
         }
-        else if (type != null) {
-            schemaNode.put("type", "string");
-            schemaNode.put("description", "Unknown complex type: " + type.getClass().getName());
-        } else {
-            schemaNode.put("type", "string");
-            schemaNode.put("description", "Unknown null type");
+    }
+
+    private void writeObjectSchema(JsonGenerator json, SchemaInfo schema, SchemaComponents components) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("type", "object");
+
+        if (schema.requiredFields() != null && !schema.requiredFields().isEmpty()) {
+            json.writeArrayFieldStart("required");
+            for (String reqField : schema.requiredFields()) {
+                json.writeString(reqField);
+            }
+            json.writeEndArray();
+        }
+
+        json.writeObjectFieldStart("properties");
+        for (FieldInfo field : schema.fields()) {
+            json.writeFieldName(field.name());
+            writeSchema(json, field.type(), field.constraints(), components);
         }
+        json.writeEndObject();
+
+        json.writeEndObject();
+    }
+
+    private static Map<String, Object> constraintsOf(ValidationConstraints constraints) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        // Note: OpenAPI uses "minimum" and "maximum"
+        if (constraints.min() != null) fields.put("minimum", constraints.min());
+        if (constraints.max() != null) fields.put("maximum", constraints.max());
 
-        return schemaNode;
+        if (constraints.minLength() != null) fields.put("minLength", constraints.minLength());
+        if (constraints.maxLength() != null) fields.put("maxLength", constraints.maxLength());
+
+        if (constraints.pattern() != null) fields.put("pattern", constraints.pattern());
+        if (constraints.format() != null) fields.put("format", constraints.format());
+        return fields;
+    }
+
+    private static void writeFields(JsonGenerator json, Map<String, Object> fields) throws IOException {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof Integer intValue) {
+                json.writeNumberField(field.getKey(), intValue);
+            } else if (value instanceof Double doubleValue) {
+                json.writeNumberField(field.getKey(), doubleValue);
+            } else if (value instanceof Map<?, ?> nested) {
+                json.writeObjectFieldStart(field.getKey());
+                @SuppressWarnings("unchecked")
+                Map<String, Object> nestedFields = (Map<String, Object>) nested;
+                writeFields(json, nestedFields);
+                json.writeEndObject();
+            } else {
+                json.writeStringField(field.getKey(), String.valueOf(value));
+            }
+        }
     }
 
-    private void mapSimpleTypeToSchema(ObjectNode schemaNode, String typeName) {
+    private void mapSimpleTypeToSchema(Map<String, Object> schemaNode, String typeName) {
 
         if (typeName.equalsIgnoreCase("Integer") || typeName.equalsIgnoreCase("int")) {
             schemaNode.put("type", "integer");
@@ -213,7 +466,7 @@ public class OpenApiGenerator {
                 typeName.equalsIgnoreCase("Collection") || typeName.equalsIgnoreCase("ArrayList") ||
                 typeName.equalsIgnoreCase("HashSet")) {
             schemaNode.put("type", "array");
-            schemaNode.putObject("items").put("type", "object"); // Generic array of objects
+            schemaNode.put("items", Map.of("type", "object")); // Generic array of objects
         }
         else {
             schemaNode.put("type", "string");
@@ -0,0 +1,193 @@
+package com.autodocer;
+
+import com.autodocer.DTO.ControllerInfo;
+import com.autodocer.DTO.EndpointInfo;
+import com.autodocer.DTO.ParameterInfo;
+import com.autodocer.DTO.ServerData;
+import com.autodocer.DTO.TagSummary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An OpenAPI document generated at build time by the autodocer Maven plugin
+ * and packaged with the application. When present, it is served as is and
+ * the application is not scanned at runtime.
+ */
+public record PrebuiltSpec(
+        SerializedSpec spec,
+        List<ServerData> servers,
+        List<ControllerInfo> controllers // Outline read back from the document: no schemas or base paths
+) {
+
+    public static final String LOCATION = "META-INF/autodocer/api-docs.json";
+    public static final String GZIP_LOCATION = LOCATION + ".gz";
+
+    private static final String SCHEMA_REF_PREFIX = "#/components/schemas/";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public List<TagSummary> tags() {
+        List<TagSummary> tags = new ArrayList<>(controllers.size());
+        for (ControllerInfo controller : controllers) {
+            tags.add(new TagSummary(controller.className(), null, controller.endpoints().size()));
+        }
+        return tags;
+    }
+
+    public int controllerCount() {
+        return controllers.size();
+    }
+
+    public int endpointCount() {
+        int endpointCount = 0;
+        for (ControllerInfo controller : controllers) {
+            endpointCount += controller.endpoints().size();
+        }
+        return endpointCount;
+    }
+
+    /**
+     * Loads the packaged document from the given class loader.
+     * @return The document, or null if the application was not built with the plugin.
+     */
+    public static PrebuiltSpec load(ClassLoader classLoader) {
+        byte[] json = read(classLoader, LOCATION);
+        if (json == null) {
+            return null;
+        }
+        byte[] gzip = read(classLoader, GZIP_LOCATION);
+        SerializedSpec spec = gzip != null ? SerializedSpec.of(json, gzip) : SerializedSpec.of(json);
+
+        // Servers and an outline of the operations are read once at load, for
+        // the status, tag index and search endpoints
+        List<ServerData> servers = new ArrayList<>();
+        Map<String, List<EndpointInfo>> endpointsByTag = new LinkedHashMap<>();
+        try {
+            JsonNode root = MAPPER.readTree(json);
+            for (JsonNode server : root.path("servers")) {
+                servers.add(new ServerData(server.path("url").asText(), server.path("description").textValue()));
+            }
+            for (Map.Entry<String, JsonNode> path : root.path("paths").properties()) {
+                for (Map.Entry<String, JsonNode> operation : path.getValue().properties()) {
+                    JsonNode firstTag = operation.getValue().path("tags").path(0);
+                    String tag = firstTag.isTextual() ? firstTag.textValue() : "default";
+                    endpointsByTag.computeIfAbsent(tag, t -> new ArrayList<>())
+                            .add(outlineOf(path.getKey(), operation.getKey(), tag, operation.getValue()));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("--- [AutoDocER] Prebuilt spec at " + LOCATION + " is not valid JSON: " + e.getMessage());
+            return null;
+        }
+        List<ControllerInfo> controllers = new ArrayList<>();
+        endpointsByTag.forEach((tag, endpoints) -> controllers.add(new ControllerInfo(tag, null, List.copyOf(endpoints))));
+        return new PrebuiltSpec(spec, List.copyOf(servers), List.copyOf(controllers));
+    }
+
+    /**
+     * Rebuilds what the document still tells about an endpoint. Parameter
+     * and response types are left out.
+     */
+    private static EndpointInfo outlineOf(String path, String httpMethod, String tag, JsonNode operation) {
+        // operationId is "<methodName>_<controller>"
+        String methodName = operation.path("operationId").isTextual() ? operation.path("operationId").textValue() : "";
+        if (methodName.endsWith("_" + tag)) {
+            methodName = methodName.substring(0, methodName.length() - tag.length() - 1);
+        }
+        List<ParameterInfo> parameters = new ArrayList<>();
+        for (JsonNode parameter : operation.path("parameters")) {
+            parameters.add(new ParameterInfo(parameter.path("name").asText(), null,
+                    "path".equals(parameter.path("in").asText()) ? "PathVariable" : "RequestParam",
+                    parameter.path("required").asBoolean(false)));
+        }
+        if (operation.has("requestBody")) {
+            parameters.add(new ParameterInfo("body", null, "RequestBody",
+                    operation.path("requestBody").path("required").asBoolean(false)));
+        }
+        return new EndpointInfo(methodName, httpMethod.toUpperCase(), path, List.copyOf(parameters), null,
+                operation.path("summary").textValue(), operation.path("description").textValue());
+    }
+
+    /**
+     * Cuts the document down to the operations of one tag and the component
+     * schemas they reference, directly or through other schemas.
+     * @return The sliced document, or null if no operation has the tag.
+     */
+    public byte[] sliceTag(String tag, boolean pretty) throws IOException {
+        JsonNode root = MAPPER.readTree(spec.identity());
+        ObjectNode sliced = MAPPER.createObjectNode();
+        ObjectNode paths = MAPPER.createObjectNode();
+        for (Map.Entry<String, JsonNode> field : root.properties()) {
+            if (field.getKey().equals("paths")) {
+                sliced.set("paths", paths);
+            } else if (!field.getKey().equals("components")) {
+                sliced.set(field.getKey(), field.getValue());
+            }
+        }
+
+        Deque<JsonNode> pending = new ArrayDeque<>();
+        for (Map.Entry<String, JsonNode> path : root.path("paths").properties()) {
+            ObjectNode operations = MAPPER.createObjectNode();
+            for (Map.Entry<String, JsonNode> operation : path.getValue().properties()) {
+                for (JsonNode operationTag : operation.getValue().path("tags")) {
+                    if (operationTag.asText().equals(tag)) {
+                        operations.set(operation.getKey(), operation.getValue());
+                        pending.push(operation.getValue());
+                        break;
+                    }
+                }
+            }
+            if (!operations.isEmpty()) {
+                paths.set(path.getKey(), operations);
+            }
+        }
+        if (paths.isEmpty()) {
+            return null;
+        }
+
+        // Walk the kept operations and every schema they lead to
+        JsonNode schemas = root.path("components").path("schemas");
+        Set<String> referenced = new HashSet<>();
+        while (!pending.isEmpty()) {
+            JsonNode node = pending.pop();
+            JsonNode ref = node.get("$ref");
+            if (ref != null && ref.isTextual() && ref.asText().startsWith(SCHEMA_REF_PREFIX)) {
+                String name = ref.asText().substring(SCHEMA_REF_PREFIX.length());
+                if (referenced.add(name) && schemas.has(name)) {
+                    pending.push(schemas.get(name));
+                }
+            }
+            node.forEach(pending::push);
+        }
+        if (!referenced.isEmpty()) {
+            ObjectNode keptSchemas = MAPPER.createObjectNode();
+            for (Map.Entry<String, JsonNode> schema : schemas.properties()) {
+                if (referenced.contains(schema.getKey())) {
+                    keptSchemas.set(schema.getKey(), schema.getValue());
+                }
+            }
+            sliced.putObject("components").set("schemas", keptSchemas);
+        }
+        return pretty ? MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(sliced) : MAPPER.writeValueAsBytes(sliced);
+    }
+
+    private static byte[] read(ClassLoader classLoader, String location) {
+        try (InputStream in = classLoader.getResourceAsStream(location)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            System.err.println("--- [AutoDocER] Could not read " + location + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.autodocer.Processor;
+
+import com.autodocer.EndpointIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes {@link EndpointIndex#LOCATION} for the @RestController classes being
+ * compiled. Registered through META-INF/services, so it runs for any module
+ * that has autodocer-core on its compile class path (on JDK 23 and later,
+ * where implicit annotation processing is off, enable it with -proc:full or
+ * list autodocer-core under annotationProcessorPaths).
+ * <p>
+ * Handlers are recorded the way {@link com.autodocer.DocumentationParser}
+ * reads them: methods declared on the controller with one of the
+ * {@code @GetMapping} ... {@code @PatchMapping} annotations, the first one in
+ * that order deciding the HTTP method.
+ * <p>
+ * Incremental compilers only hand over the changed sources, so the existing
+ * index is merged: entries for classes compiled in this run are replaced and
+ * entries for classes that no longer exist are dropped.
+ */
+@SupportedAnnotationTypes("*")
+public class EndpointIndexProcessor extends AbstractProcessor {
+
+    private static final String BIND = "org.springframework.web.bind.annotation.";
+    private static final String REST_CONTROLLER = BIND + "RestController";
+
+    // Mapping annotation -> HTTP method, in the order the parser checks them
+    private static final Map<String, String> MAPPINGS = new LinkedHashMap<>();
+    static {
+        MAPPINGS.put(BIND + "GetMapping", "GET");
+        MAPPINGS.put(BIND + "PostMapping", "POST");
+        MAPPINGS.put(BIND + "PutMapping", "PUT");
+        MAPPINGS.put(BIND + "DeleteMapping", "DELETE");
+        MAPPINGS.put(BIND + "PatchMapping", "PATCH");
+    }
+
+    // Parameter binding annotations the parser distinguishes, in its order
+    private static final List<String> BINDINGS = List.of("RequestBody", "PathVariable", "RequestParam");
+
+    private final Map<String, List<EndpointIndex.Handler>> found = new LinkedHashMap<>();
+    private final Set<String> compiled = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collect(type);
+        }
+        // Never claim annotations, other processors may need them too
+        return false;
+    }
+
+    private void collect(TypeElement type) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        compiled.add(binaryName);
+        if (isRestController(type, new HashSet<>())) {
+            List<EndpointIndex.Handler> handlers = new ArrayList<>();
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                String httpMethod = httpMethodOf(method);
+                if (httpMethod != null) {
+                    handlers.add(handlerOf(method, httpMethod));
+                }
+            }
+            found.put(binaryName, handlers);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nested);
+        }
+    }
+
+    /**
+     * Whether the element carries @RestController directly or through a
+     * stereotype annotation, as Spring's merged annotation lookup would see it.
+     */
+    private boolean isRestController(Element element, Set<String> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            String name = annotationType.getQualifiedName().toString();
+            if (name.equals(REST_CONTROLLER)) {
+                return true;
+            }
+            if (!name.startsWith("java.lang.annotation.") && visited.add(name)
+                    && isRestController(annotationType, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String httpMethodOf(ExecutableElement method) {
+        Set<String> present = new HashSet<>();
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            present.add(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString());
+        }
+        for (Map.Entry<String, String> mapping : MAPPINGS.entrySet()) {
+            if (present.contains(mapping.getKey())) {
+                return mapping.getValue();
+            }
+        }
+        return null;
+    }
+
+    private EndpointIndex.Handler handlerOf(ExecutableElement method, String httpMethod) {
+        List<EndpointIndex.Parameter> parameters = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            String sourceType = "Unknown";
+            boolean required = true;
+            for (String binding : BINDINGS) {
+                AnnotationMirror annotation = findAnnotation(parameter, BIND + binding);
+                if (annotation != null) {
+                    sourceType = binding;
+                    // Only these two have a required flag the parser reads
+                    if (!binding.equals("PathVariable")) {
+                        required = requiredFlag(annotation);
+                    }
+                    break;
+                }
+            }
+            parameters.add(new EndpointIndex.Parameter(typeName(parameter.asType()), sourceType, required));
+        }
+        return new EndpointIndex.Handler(method.getSimpleName().toString(), httpMethod,
+                typeName(method.getReturnType()), parameters);
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static boolean requiredFlag(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                : annotation.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals("required")) {
+                return Boolean.TRUE.equals(value.getValue().getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The erased type as the runtime resolves it: binary class names,
+     * primitive keywords and "[]" suffixes for arrays.
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased instanceof ArrayType arrayType) {
+            return typeName(arrayType.getComponentType()) + "[]";
+        }
+        if (erased instanceof DeclaredType declaredType) {
+            return processingEnv.getElementUtils().getBinaryName((TypeElement) declaredType.asElement()).toString();
+        }
+        return erased.toString();
+    }
+
+    private void writeIndex() {
+        EndpointIndex index = readExistingIndex();
+        for (String className : Set.copyOf(index.controllers().keySet())) {
+            if (compiled.contains(className) || !exists(className)) {
+                index.remove(className);
+            }
+        }
+        found.forEach(index::put);
+        if (index.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", EndpointIndex.LOCATION);
+            try (Writer writer = file.openWriter()) {
+                index.write(writer);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "AutoDocER could not write " + EndpointIndex.LOCATION + ": " + e.getMessage());
+        }
+    }
+
+    private EndpointIndex readExistingIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", EndpointIndex.LOCATION);
+            try (Reader reader = file.openReader(true)) {
+                return EndpointIndex.read(reader);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No index from an earlier build
+            return new EndpointIndex();
+        }
+    }
+
+    private boolean exists(String binaryName) {
+        return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+    }
+}
@@ -8,6 +8,8 @@ import com.autodocer.DTO.ValidationConstraints;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 
 import jakarta.validation.constraints.Email;
@@ -20,13 +22,91 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 
+/**
+ * Turns Java types into schema descriptions. Results are memoized per
+ * {@link Type} for the lifetime of the parser, so a DTO referenced by many
+ * endpoints is reflected once; the memo is safe to share between threads.
+ */
 public class SchemaParser {
 
+    private final Map<Type, Memo> schemaCache = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * Tracks the classes on the current path from the root type, for cycle
+     * detection. Classes are added on the way down and removed on the way
+     * back up, so the set is never copied.
+     */
+    private static final class ParseState {
+        private final Map<Class<?>, Integer> path = new HashMap<>();
+        // Shallowest path depth a cycle was cut at in the subtree being parsed
+        private int lowestCut = Integer.MAX_VALUE;
+        // Classes the subtree being parsed reaches
+        private Set<Class<?>> reached = new HashSet<>();
+    }
+
+    /**
+     * A memoized schema and the classes it reaches. It only stands for its
+     * type on paths that hold none of those classes: on any other path the
+     * cycle would be cut there instead.
+     */
+    private record Memo(Object schema, Set<Class<?>> reached) {}
+
     public Object parseSchema(Type type) {
-        return parseSchemaRecursive(type, new HashSet<>());
+        return parseSchemaRecursive(type, new ParseState());
+    }
+
+    public int getCachedTypeCount() {
+        return schemaCache.size();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
     }
 
-    private Object parseSchemaRecursive(Type type, Set<Class<?>> visited) {
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Memoizing wrapper. A result is cached when every cycle cut in its
+     * subtree points back into the subtree (at or below the depth the type
+     * was entered at), as it then does not depend on the classes above it.
+     * Self-referencing types, such as trees and parent links, are cached
+     * this way. A cut further up depends on the path the type was reached
+     * by, so such a result is not cached, or the output would depend on scan
+     * order. get/putIfAbsent is used instead of computeIfAbsent, which must
+     * not be re-entered for the same map while computing.
+     */
+    private Object parseSchemaRecursive(Type type, ParseState state) {
+        if (type instanceof Class<?> clazz && isSimpleType(clazz)) {
+            return clazz.getSimpleName();
+        }
+        Memo cached = schemaCache.get(type);
+        if (cached != null && Collections.disjoint(cached.reached(), state.path.keySet())) {
+            cacheHits.increment();
+            state.reached.addAll(cached.reached());
+            return cached.schema();
+        }
+        cacheMisses.increment();
+
+        int depth = state.path.size();
+        int outerLowestCut = state.lowestCut;
+        Set<Class<?>> outerReached = state.reached;
+        state.lowestCut = Integer.MAX_VALUE;
+        state.reached = new HashSet<>();
+        Object schema = parseUncached(type, state);
+        if (state.lowestCut >= depth) {
+            schemaCache.putIfAbsent(type, new Memo(schema, Set.copyOf(state.reached)));
+        }
+        state.lowestCut = Math.min(outerLowestCut, state.lowestCut);
+        outerReached.addAll(state.reached);
+        state.reached = outerReached;
+        return schema;
+    }
+
+    private Object parseUncached(Type type, ParseState state) {
 
         // --- Handle ParameterizedType (like List<UserDto>) FIRST ---
         if (type instanceof ParameterizedType parameterizedType) {
@@ -37,7 +117,7 @@ public class SchemaParser {
                     Type[] typeArguments = parameterizedType.getActualTypeArguments();
                     if (typeArguments.length > 0) {
                         // Recursively parse the type inside the collection (e.g., UserDto)
-                        Object itemSchema = parseSchemaRecursive(typeArguments[0], new HashSet<>(visited));
+                        Object itemSchema = parseSchemaRecursive(typeArguments[0], state);
                         // Assuming ArraySchemaInfo exists and takes the item schema
                         return new ArraySchemaInfo(itemSchema);
                     } else {
@@ -55,10 +135,13 @@ public class SchemaParser {
                 return clazz.getSimpleName();
             }
 
-            if (visited.contains(clazz)) {
+            state.reached.add(clazz);
+            Integer ancestorDepth = state.path.get(clazz);
+            if (ancestorDepth != null) {
+                state.lowestCut = Math.min(state.lowestCut, ancestorDepth);
                 return "Circular Reference to " + clazz.getSimpleName();
             }
-            visited.add(clazz);
+            state.path.put(clazz, state.path.size());
 
             List<FieldInfo> fields = new ArrayList<>();
             List<String> requiredFields = new ArrayList<>(); // <-- ADDED
@@ -134,14 +217,16 @@ public class SchemaParser {
                 }
 
                 // Recursively parse the field's type
-                Object fieldType = parseSchemaRecursive(field.getGenericType(), new HashSet<>(visited));
+                Object fieldType = parseSchemaRecursive(field.getGenericType(), state);
 
                 // Add the FieldInfo with its new constraints
                 fields.add(new FieldInfo(field.getName(), fieldType, constraints)); // <-- UPDATED
             }
 
+            state.path.remove(clazz);
+
             // Return the SchemaInfo with the new requiredFields list
-            return new SchemaInfo(clazz.getSimpleName(), fields, requiredFields); // <-- UPDATED
+            return new SchemaInfo(clazz.getSimpleName(), fields, requiredFields, clazz.getName()); // <-- UPDATED
         }
 
         // Fallback for unknown Type implementations (like TypeVariable, WildcardType)
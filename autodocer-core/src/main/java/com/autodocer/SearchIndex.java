@@ -0,0 +1,274 @@
+package com.autodocer;
+
+import com.autodocer.AiDescription.AiEnrichmentService;
+import com.autodocer.DTO.ControllerInfo;
+import com.autodocer.DTO.EndpointInfo;
+import com.autodocer.DTO.ParameterInfo;
+import com.autodocer.DTO.SearchResponse;
+import com.autodocer.DTO.SearchResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the documented endpoints, ranked with BM25.
+ * <p>
+ * Each endpoint is one document made of its path segments, HTTP method,
+ * method name, controller name, parameter names and its summary and
+ * description. Identifiers are split on camel case as well as kept whole,
+ * so "getUserById" is found by "user" and by "getuserbyid". Fields are
+ * weighted by folding the weight into the term frequency, so a hit in the
+ * path or method name counts more than one in the description. The last
+ * query word also matches as a prefix, for search-as-you-type.
+ * <p>
+ * {@link #update} is incremental: endpoints whose indexed text has not changed
+ * since the previous snapshot keep their postings, so an AI enrichment round
+ * only reindexes the endpoints it described.
+ */
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final int MAX_PREFIX_TERMS = 50;
+
+    private static final float PATH_WEIGHT = 3f;
+    private static final float METHOD_NAME_WEIGHT = 3f;
+    private static final float CONTROLLER_WEIGHT = 2f;
+    private static final float PARAMETER_WEIGHT = 2f;
+    private static final float HTTP_METHOD_WEIGHT = 1f;
+    private static final float SUMMARY_WEIGHT = 1f;
+    private static final float DESCRIPTION_WEIGHT = 0.5f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "be", "for", "from", "in", "is", "it", "of", "on", "or",
+            "that", "the", "this", "to", "with");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    // camelCase, ABCWord and letter/digit boundaries
+    private static final Pattern WORD_BOUNDARIES = Pattern.compile(
+            "(?<=\\p{Ll})(?=\\p{Lu})|(?<=\\p{Lu})(?=\\p{Lu}\\p{Ll})|(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})");
+
+    private static final class Doc {
+        final String controller;
+        EndpointInfo endpoint;
+        final String text; // the indexed fields, to tell whether a new snapshot changed them
+        final Map<String, Float> terms;
+        final float length;
+
+        Doc(String controller, EndpointInfo endpoint, String text, Map<String, Float> terms) {
+            this.controller = controller;
+            this.endpoint = endpoint;
+            this.text = text;
+            this.terms = terms;
+            float length = 0;
+            for (float frequency : terms.values()) {
+                length += frequency;
+            }
+            this.length = length;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Doc> docs = new HashMap<>();
+    // Sorted so that prefix matches are a range scan
+    private final TreeMap<String, Map<Doc, Float>> postings = new TreeMap<>();
+    private double totalLength;
+    private long version;
+
+    /**
+     * Brings the index in line with a snapshot's controllers.
+     * @return The number of endpoints that had to be (re)indexed or dropped.
+     */
+    public int update(long version, List<ControllerInfo> controllers) {
+        lock.writeLock().lock();
+        try {
+            Set<String> seen = new HashSet<>();
+            int changed = 0;
+            for (ControllerInfo controller : controllers) {
+                for (EndpointInfo endpoint : controller.endpoints()) {
+                    String key = AiEnrichmentService.endpointKey(controller.className(), endpoint);
+                    seen.add(key);
+                    Doc existing = docs.get(key);
+                    if (existing != null && existing.endpoint == endpoint) {
+                        continue;
+                    }
+                    String text = textOf(controller.className(), endpoint);
+                    if (existing != null && existing.text.equals(text)) {
+                        existing.endpoint = endpoint;
+                        continue;
+                    }
+                    if (existing != null) {
+                        remove(key, existing);
+                    }
+                    add(key, new Doc(controller.className(), endpoint, text, termsOf(controller.className(), endpoint)));
+                    changed++;
+                }
+            }
+            for (Map.Entry<String, Doc> doc : List.copyOf(docs.entrySet())) {
+                if (!seen.contains(doc.getKey())) {
+                    remove(doc.getKey(), doc.getValue());
+                    changed++;
+                }
+            }
+            this.version = version;
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks the endpoints matching any word of the query.
+     * @param limit The maximum number of results returned.
+     */
+    public SearchResponse search(String query, int limit) {
+        long start = System.nanoTime();
+        List<String> words = tokenize(query == null ? "" : query, false);
+        lock.readLock().lock();
+        try {
+            Map<Doc, Double> scores = new HashMap<>();
+            double averageLength = docs.isEmpty() ? 1 : totalLength / docs.size();
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                // A document scores once per query word: its best exact or prefix match
+                Map<Doc, Double> wordScores = new HashMap<>();
+                score(postings.get(word), 1.0, averageLength, wordScores);
+                if (i == words.size() - 1) {
+                    int expanded = 0;
+                    for (Map.Entry<String, Map<Doc, Float>> term : postings.tailMap(word, false).entrySet()) {
+                        if (!term.getKey().startsWith(word) || expanded++ == MAX_PREFIX_TERMS) {
+                            break;
+                        }
+                        score(term.getValue(), PREFIX_WEIGHT, averageLength, wordScores);
+                    }
+                }
+                wordScores.forEach((doc, score) -> scores.merge(doc, score, Double::sum));
+            }
+
+            List<Map.Entry<Doc, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Doc, Double>comparingByValue().reversed()
+                    .thenComparing(entry -> entry.getKey().endpoint.path())
+                    .thenComparing(entry -> entry.getKey().endpoint.httpMethod()));
+            List<SearchResult> results = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (Map.Entry<Doc, Double> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+                EndpointInfo endpoint = entry.getKey().endpoint;
+                results.add(new SearchResult(entry.getKey().controller, endpoint.methodName(), endpoint.httpMethod(),
+                        endpoint.path(), endpoint.summary(), Math.round(entry.getValue() * 1000) / 1000.0));
+            }
+            return new SearchResponse(query, version, ranked.size(), (System.nanoTime() - start) / 1_000, results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void score(Map<Doc, Float> posting, double weight, double averageLength, Map<Doc, Double> wordScores) {
+        if (posting == null) {
+            return;
+        }
+        int documentFrequency = posting.size();
+        double idf = Math.log(1 + (docs.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        for (Map.Entry<Doc, Float> entry : posting.entrySet()) {
+            double frequency = entry.getValue();
+            double norm = K1 * (1 - B + B * entry.getKey().length / averageLength);
+            double score = weight * idf * frequency * (K1 + 1) / (frequency + norm);
+            wordScores.merge(entry.getKey(), score, Math::max);
+        }
+    }
+
+    private void add(String key, Doc doc) {
+        docs.put(key, doc);
+        totalLength += doc.length;
+        doc.terms.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(doc, frequency));
+    }
+
+    private void remove(String key, Doc doc) {
+        docs.remove(key);
+        totalLength -= doc.length;
+        for (String term : doc.terms.keySet()) {
+            Map<Doc, Float> posting = postings.get(term);
+            posting.remove(doc);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static String textOf(String controller, EndpointInfo endpoint) {
+        StringBuilder text = new StringBuilder()
+                .append(endpoint.path()).append('\n')
+                .append(endpoint.httpMethod()).append('\n')
+                .append(endpoint.methodName()).append('\n')
+                .append(controller).append('\n');
+        for (ParameterInfo parameter : endpoint.parameters()) {
+            text.append(parameter.name()).append(' ');
+        }
+        return text.append('\n').append(endpoint.summary())
+                .append('\n').append(endpoint.description()).toString();
+    }
+
+    private static Map<String, Float> termsOf(String controller, EndpointInfo endpoint) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, endpoint.path(), PATH_WEIGHT, false);
+        addTerms(terms, endpoint.httpMethod(), HTTP_METHOD_WEIGHT, false);
+        addTerms(terms, endpoint.methodName(), METHOD_NAME_WEIGHT, true);
+        addTerms(terms, controller, CONTROLLER_WEIGHT, true);
+        for (ParameterInfo parameter : endpoint.parameters()) {
+            addTerms(terms, parameter.name(), PARAMETER_WEIGHT, true);
+        }
+        addTerms(terms, endpoint.summary(), SUMMARY_WEIGHT, false);
+        addTerms(terms, endpoint.description(), DESCRIPTION_WEIGHT, false);
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight, boolean identifier) {
+        if (text != null) {
+            for (String term : tokenize(text, identifier)) {
+                terms.merge(term, weight, Float::sum);
+            }
+        }
+    }
+
+    /**
+     * Lower-cased words of the text, split at non-alphanumerics and at camel
+     * case and digit boundaries. Stop words are dropped.
+     * @param keepWhole Also emit each identifier as a single lower-cased word.
+     */
+    static List<String> tokenize(String text, boolean keepWhole) {
+        List<String> tokens = new ArrayList<>();
+        for (String chunk : SEPARATORS.split(text)) {
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            String[] parts = WORD_BOUNDARIES.split(chunk);
+            for (String part : parts) {
+                String token = part.toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+            }
+            if (keepWhole && parts.length > 1) {
+                tokens.add(chunk.toLowerCase(Locale.ROOT));
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,183 @@
+package com.autodocer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The OpenAPI document serialized once into bytes, together with a
+ * pre-compressed gzip variant and a strong ETag derived from the content.
+ * Instances are immutable and safe to share between request threads.
+ * <p>
+ * A streamed spec only carries the content hash; its bytes are not kept and
+ * the document is written anew for each request.
+ */
+public record SerializedSpec(
+        byte[] identity,
+        byte[] gzip,
+        String contentHash
+) {
+
+    public static final String ENCODING_GZIP = "gzip";
+
+    /**
+     * Writes a document to a stream.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Builds the compressed variant and content hash for the given JSON bytes.
+     */
+    public static SerializedSpec of(byte[] json) {
+        return new SerializedSpec(json, gzip(json), hash(json));
+    }
+
+    /**
+     * Uses an already compressed variant, e.g. one packaged at build time.
+     */
+    public static SerializedSpec of(byte[] json, byte[] gzip) {
+        return new SerializedSpec(json, gzip, hash(json));
+    }
+
+    /**
+     * Hashes a document while it is written to a discarding stream, so only
+     * the digest is ever held in memory.
+     */
+    public static SerializedSpec streamed(Writer writer) {
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            writer.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not hash OpenAPI document", e);
+        }
+        return new SerializedSpec(null, null, HexFormat.of().formatHex(digest.digest(), 0, 16));
+    }
+
+    /**
+     * Whether the document bytes are held in memory (false for a streamed spec).
+     */
+    public boolean isBuffered() {
+        return identity != null;
+    }
+
+    /**
+     * Returns the strong ETag of the representation sent with the given
+     * content encoding (null for uncompressed).
+     */
+    public String etag(String encoding) {
+        if (ENCODING_GZIP.equals(encoding)) {
+            return "\"" + contentHash + "-gz\"";
+        }
+        return "\"" + contentHash + "\"";
+    }
+
+    public byte[] body(String encoding) {
+        return ENCODING_GZIP.equals(encoding) ? gzip : identity;
+    }
+
+    /**
+     * Checks an If-None-Match header against this spec. Both the plain and
+     * the compressed ETags identify the same document, so either one matches.
+     */
+    public boolean matches(String ifNoneMatch) {
+        return matches(ifNoneMatch, contentHash);
+    }
+
+    /**
+     * Checks an If-None-Match header against the ETags of a document with
+     * the given content hash, e.g. one from an earlier snapshot.
+     */
+    public static boolean matches(String ifNoneMatch, String contentHash) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("\"" + contentHash + "\"") || tag.equals("\"" + contentHash + "-gz\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the best encoding we have a variant for from an Accept-Encoding header.
+     * @return "gzip", or null when the identity representation should be sent.
+     */
+    public static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            if (!coding.equals(ENCODING_GZIP) && !coding.equals("*")) {
+                continue;
+            }
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (coding.equals(ENCODING_GZIP)) {
+                gzipQuality = quality;
+            } else {
+                wildcardQuality = quality;
+            }
+        }
+        // An explicit "gzip" entry wins over the wildcard
+        double effective = gzipQuality != null ? gzipQuality : (wildcardQuality != null ? wildcardQuality : 0.0);
+        return effective > 0 ? ENCODING_GZIP : null;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(512, data.length / 4));
+        // Compression happens once per snapshot, so use the best ratio available
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compress OpenAPI document", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String hash(byte[] data) {
+        return HexFormat.of().formatHex(sha256().digest(data), 0, 16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.autodocer;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+
+import java.util.Map;
+
+/**
+ * Advertises the content hash of the current OpenAPI document in this
+ * instance's Eureka metadata, so an aggregator can tell from the registry
+ * alone whether the document changed and skip downloading it otherwise.
+ * <p>
+ * Eureka sends changed metadata with the instance's next replication, so
+ * the registry follows a new snapshot version within that interval.
+ */
+public class SpecHashPublisher {
+
+    /**
+     * Metadata key under which the hash is published; the same value as the
+     * document's ETag without quotes.
+     */
+    public static final String METADATA_KEY = "autodocer.spec-hash";
+
+    private final ApplicationInfoManager applicationInfoManager;
+
+    public SpecHashPublisher(ApplicationInfoManager applicationInfoManager) {
+        this.applicationInfoManager = applicationInfoManager;
+    }
+
+    public void publish(DocumentationCache.Snapshot snapshot) {
+        String hash = snapshot.spec().contentHash();
+        if (hash.equals(applicationInfoManager.getInfo().getMetadata().get(METADATA_KEY))) {
+            return;
+        }
+        applicationInfoManager.registerAppMetadata(Map.of(METADATA_KEY, hash));
+        System.out.println("--- [AutoDocER] Published spec hash " + hash + " (version " + snapshot.version()
+                + ") to Eureka metadata ---");
+    }
+}
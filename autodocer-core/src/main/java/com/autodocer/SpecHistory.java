@@ -0,0 +1,121 @@
+package com.autodocer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Predicate;
+
+/**
+ * Bounded history of how the document changed from one snapshot version to
+ * the next, kept as RFC 6902 JSON Patch operations. A client holding an
+ * older version can be sent the concatenated operations since that version
+ * instead of the whole document.
+ * <p>
+ * Only the current document is held as a tree (to diff the next version
+ * against); older versions are represented solely by their deltas and
+ * content hashes. The hashes let a request prove which document it holds,
+ * so a version number from before a restart is not patched as if it were
+ * the same document.
+ */
+public class SpecHistory {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // The change from one version to the next
+    private record Delta(long fromVersion, String fromHash, ArrayNode operations) {}
+
+    private final int maxDeltas;
+    private final Deque<Delta> deltas = new ArrayDeque<>();
+    private JsonNode current;
+    private long currentVersion;
+    private String currentHash;
+    private int currentSize;
+
+    /**
+     * @param maxDeltas How many version steps to keep; 0 disables the history.
+     */
+    public SpecHistory(int maxDeltas) {
+        this.maxDeltas = maxDeltas;
+    }
+
+    public boolean isEnabled() {
+        return maxDeltas > 0;
+    }
+
+    /**
+     * Records a newly published version, diffing it against the previous one.
+     */
+    public synchronized void record(long version, String contentHash, byte[] json) {
+        if (!isEnabled()) {
+            return;
+        }
+        JsonNode document;
+        try {
+            document = MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read OpenAPI document for the version history", e);
+        }
+        if (current != null) {
+            deltas.addLast(new Delta(currentVersion, currentHash, JsonPatch.diff(current, document)));
+            while (deltas.size() > maxDeltas) {
+                deltas.removeFirst();
+            }
+        }
+        current = document;
+        currentVersion = version;
+        currentHash = contentHash;
+        currentSize = json.length;
+    }
+
+    /**
+     * Builds the JSON Patch from a past version to the given current one.
+     * @param heldHash Content hash check: when not null, the patch is only
+     *                 built if the since version's hash passes this check.
+     * @return The serialized patch, or null when the history does not cover
+     *         that version or the patch would not be smaller than the document.
+     */
+    public synchronized byte[] patchSince(long since, long toVersion, Predicate<String> heldHash) {
+        if (current == null || currentVersion != toVersion || since > toVersion) {
+            return null;
+        }
+        ArrayNode operations = MAPPER.createArrayNode();
+        if (since == toVersion) {
+            if (heldHash != null && !heldHash.test(currentHash)) {
+                return null;
+            }
+            return serialize(operations);
+        }
+        boolean found = false;
+        for (Delta delta : deltas) {
+            if (!found) {
+                if (delta.fromVersion() != since) {
+                    continue;
+                }
+                if (heldHash != null && !heldHash.test(delta.fromHash())) {
+                    return null;
+                }
+                found = true;
+            }
+            operations.addAll(delta.operations());
+        }
+        if (!found) {
+            return null;
+        }
+        byte[] patch = serialize(operations);
+        return patch.length < currentSize ? patch : null;
+    }
+
+    private static byte[] serialize(ArrayNode operations) {
+        try {
+            return MAPPER.writeValueAsBytes(operations);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Could not serialize JSON Patch", e);
+        }
+    }
+}
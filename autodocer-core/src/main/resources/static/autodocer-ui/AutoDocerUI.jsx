@@ -1,6 +1,33 @@
 import React, { useState, useEffect, useMemo } from 'react';
 import { Search, Moon, Sun, Copy, Check, Loader, AlertTriangle, Code, CheckCircle, Inbox, ChevronRight, Menu, X } from 'lucide-react';
 
+// Object schemas are shared through components/schemas; inline the $refs so
+// the renderers below can keep walking plain nested schemas.
+const resolveSchemaRefs = (spec) => {
+  const prefix = '#/components/schemas/';
+  const schemas = spec?.components?.schemas || {};
+  const resolve = (node, seen) => {
+    if (Array.isArray(node)) return node.map(item => resolve(item, seen));
+    if (!node || typeof node !== 'object') return node;
+    if (typeof node.$ref === 'string' && node.$ref.startsWith(prefix)) {
+      const name = node.$ref.substring(prefix.length);
+      if (seen.has(name) || !schemas[name]) {
+        return { type: 'string', description: `Type: Circular Reference to ${name}` };
+      }
+      return resolve(schemas[name], new Set(seen).add(name));
+    }
+    if (Array.isArray(node.allOf) && node.allOf.length === 1) {
+      // A constrained reference: merge the constraints into the referenced schema
+      const { allOf, ...constraints } = node;
+      return { ...resolve(allOf[0], seen), ...constraints };
+    }
+    const resolved = {};
+    Object.entries(node).forEach(([key, value]) => { resolved[key] = resolve(value, seen); });
+    return resolved;
+  };
+  return spec && spec.paths ? { ...spec, paths: resolve(spec.paths, new Set()) } : spec;
+};
+
 const AutoDocerUI = () => {
   const [apiSpec, setApiSpec] = useState(null);
   const [selectedServer, setSelectedServer] = useState(null);
@@ -13,6 +40,9 @@ const AutoDocerUI = () => {
   const [examples, setExamples] = useState([]);
   const [copiedIndex, setCopiedIndex] = useState(null);
   const [sidebarOpen, setSidebarOpen] = useState(true);
+  const [tagIndex, setTagIndex] = useState([]);
+  const [tagStates, setTagStates] = useState({}); // tag -> 'loading' | 'loaded' | error message
+  const [searchResults, setSearchResults] = useState(null); // null while a query is pending
 
   // Load API spec
   useEffect(() => {
@@ -28,13 +58,18 @@ const AutoDocerUI = () => {
     }
   }, [darkMode]);
 
+  // Only the tag listing is fetched up front; each controller's document
+  // is fetched when its group is opened (or when searching).
   const loadApi = async () => {
     try {
       setLoading(true);
-      const response = await fetch('/autodocer/api-docs');
+      const response = await fetch('/autodocer/api-docs/tags');
       if (!response.ok) throw new Error(`HTTP ${response.status}`);
       
-      const data = await response.json();
+      const index = await response.json();
+      const data = { servers: index.servers || [], paths: {} };
+      setTagIndex(index.tags || []);
+      setTagStates({});
       setApiSpec(data);
       
       // Set default server
@@ -53,6 +88,58 @@ const AutoDocerUI = () => {
     }
   };
 
+  const loadTag = async (tag) => {
+    if (tagStates[tag] === 'loading' || tagStates[tag] === 'loaded') return;
+    setTagStates(prev => ({ ...prev, [tag]: 'loading' }));
+    try {
+      const response = await fetch(`/autodocer/api-docs/tags/${encodeURIComponent(tag)}`);
+      if (!response.ok) throw new Error(`HTTP ${response.status}`);
+
+      const data = resolveSchemaRefs(await response.json());
+      setApiSpec(prev => {
+        const paths = { ...prev.paths };
+        Object.entries(data.paths || {}).forEach(([path, methods]) => {
+          paths[path] = { ...(paths[path] || {}), ...methods };
+        });
+        return { ...prev, paths };
+      });
+      setTagStates(prev => ({ ...prev, [tag]: 'loaded' }));
+    } catch (err) {
+      console.error(`Error loading ${tag}:`, err);
+      setTagStates(prev => ({ ...prev, [tag]: err.message }));
+    }
+  };
+
+  // Search is answered by the server's index, so no tag has to be loaded for it
+  useEffect(() => {
+    const query = searchQuery.trim();
+    setSearchResults(null);
+    if (!query) return;
+
+    const controller = new AbortController();
+    const timer = setTimeout(async () => {
+      try {
+        const response = await fetch(`/autodocer/search?q=${encodeURIComponent(query)}&limit=50`, { signal: controller.signal });
+        if (!response.ok) throw new Error(`HTTP ${response.status}`);
+        setSearchResults(await response.json());
+      } catch (err) {
+        if (err.name !== 'AbortError') {
+          console.error('Error searching:', err);
+          setSearchResults({ results: [], error: err.message });
+        }
+      }
+    }, 150);
+    return () => {
+      clearTimeout(timer);
+      controller.abort();
+    };
+  }, [searchQuery]);
+
+  const openSearchResult = async ({ controller, path, httpMethod }) => {
+    selectEndpoint(path, httpMethod.toLowerCase());
+    await loadTag(controller);
+  };
+
   // Group endpoints by tag
   const endpointsByTag = useMemo(() => {
     if (!apiSpec || !apiSpec.paths) return {};
@@ -69,31 +156,6 @@ const AutoDocerUI = () => {
     return grouped;
   }, [apiSpec]);
 
-  // Filter endpoints based on search
-  const filteredEndpoints = useMemo(() => {
-    if (!searchQuery.trim()) return endpointsByTag;
-    
-    const query = searchQuery.toLowerCase();
-    const filtered = {};
-    
-    Object.entries(endpointsByTag).forEach(([tag, endpoints]) => {
-      const matchingEndpoints = endpoints.filter(({ path, method, operation }) => {
-        return (
-          path.toLowerCase().includes(query) ||
-          method.toLowerCase().includes(query) ||
-          (operation.summary && operation.summary.toLowerCase().includes(query)) ||
-          (operation.description && operation.description.toLowerCase().includes(query))
-        );
-      });
-      
-      if (matchingEndpoints.length > 0) {
-        filtered[tag] = matchingEndpoints;
-      }
-    });
-    
-    return filtered;
-  }, [endpointsByTag, searchQuery]);
-
   const buildEndpointInfo = (path, method, operation) => {
     const parameters = [];
 
@@ -186,6 +248,54 @@ const AutoDocerUI = () => {
     }
   };
 
+  const renderEndpointItem = ({ path, method }) => (
+    <li
+      key={`${method}-${path}`}
+      onClick={() => selectEndpoint(path, method)}
+      className={`
+        px-3 py-2 rounded-lg cursor-pointer text-sm flex items-center gap-2
+        transition-all hover:bg-gray-100 dark:hover:bg-gray-800
+        ${currentEndpoint?.path === path && currentEndpoint?.method === method
+          ? 'bg-blue-50 dark:bg-blue-900/20 text-blue-600 dark:text-blue-400 font-medium'
+          : 'text-gray-700 dark:text-gray-300'
+        }
+      `}
+    >
+      <span className={`px-2 py-1 rounded text-xs font-bold uppercase ${methodColors[method]}`}>
+        {method}
+      </span>
+      <span className="font-mono text-xs truncate">{path}</span>
+    </li>
+  );
+
+  const renderSearchResult = (result) => {
+    const method = result.httpMethod.toLowerCase();
+    return (
+      <li
+        key={`${method}-${result.path}`}
+        onClick={() => openSearchResult(result)}
+        className={`
+          px-3 py-2 rounded-lg cursor-pointer text-sm flex items-center gap-2
+          transition-all hover:bg-gray-100 dark:hover:bg-gray-800
+          ${currentEndpoint?.path === result.path && currentEndpoint?.method === method
+            ? 'bg-blue-50 dark:bg-blue-900/20 text-blue-600 dark:text-blue-400 font-medium'
+            : 'text-gray-700 dark:text-gray-300'
+          }
+        `}
+      >
+        <span className={`px-2 py-1 rounded text-xs font-bold uppercase flex-shrink-0 ${methodColors[method]}`}>
+          {method}
+        </span>
+        <span className="min-w-0">
+          <span className="block font-mono text-xs truncate">{result.path}</span>
+          <span className="block text-xs text-gray-500 dark:text-gray-400 truncate">
+            {result.controller}{result.summary ? ` · ${result.summary}` : ''}
+          </span>
+        </span>
+      </li>
+    );
+  };
+
   const methodColors = {
     get: 'bg-emerald-100 text-emerald-800 dark:bg-emerald-900/30 dark:text-emerald-300',
     post: 'bg-blue-100 text-blue-800 dark:bg-blue-900/30 dark:text-blue-300',
@@ -285,36 +395,41 @@ const AutoDocerUI = () => {
               <AlertTriangle className="w-4 h-4 inline mr-2" />
               Error: {error}
             </div>
-          ) : (
-            Object.keys(filteredEndpoints).sort().map(tag => (
-              <details key={tag} open className="mb-2">
+          ) : !searchQuery.trim() ? (
+            [...tagIndex].sort((a, b) => (a.name < b.name ? -1 : a.name > b.name ? 1 : 0)).map(({ name: tag, endpointCount }) => (
+              <details key={tag} className="mb-2" onToggle={(e) => e.currentTarget.open && loadTag(tag)}>
                 <summary className="px-3 py-2 cursor-pointer font-semibold text-sm text-gray-900 dark:text-white rounded-lg hover:bg-gray-100 dark:hover:bg-gray-800 flex items-center gap-2 select-none">
                   <ChevronRight className="w-4 h-4 transition-transform" />
-                  {tag}
+                  <span className="flex-1">{tag}</span>
+                  <span className="text-xs text-gray-500 dark:text-gray-400">{endpointCount}</span>
                 </summary>
-                <ul className="mt-1 ml-2 space-y-1">
-                  {filteredEndpoints[tag].map(({ path, method, operation }) => (
-                    <li
-                      key={`${method}-${path}`}
-                      onClick={() => selectEndpoint(path, method)}
-                      className={`
-                        px-3 py-2 rounded-lg cursor-pointer text-sm flex items-center gap-2
-                        transition-all hover:bg-gray-100 dark:hover:bg-gray-800
-                        ${currentEndpoint?.path === path && currentEndpoint?.method === method
-                          ? 'bg-blue-50 dark:bg-blue-900/20 text-blue-600 dark:text-blue-400 font-medium'
-                          : 'text-gray-700 dark:text-gray-300'
-                        }
-                      `}
-                    >
-                      <span className={`px-2 py-1 rounded text-xs font-bold uppercase ${methodColors[method]}`}>
-                        {method}
-                      </span>
-                      <span className="font-mono text-xs truncate">{path}</span>
-                    </li>
-                  ))}
-                </ul>
+                {tagStates[tag] === 'loaded' ? (
+                  <ul className="mt-1 ml-2 space-y-1">
+                    {(endpointsByTag[tag] || []).map(renderEndpointItem)}
+                  </ul>
+                ) : tagStates[tag] && tagStates[tag] !== 'loading' ? (
+                  <div className="mt-1 ml-5 text-xs text-red-600 dark:text-red-400">Error: {tagStates[tag]}</div>
+                ) : (
+                  <div className="flex items-center ml-5 mt-1 text-xs text-gray-500">
+                    <Loader className="w-3 h-3 animate-spin mr-2" />
+                    Loading...
+                  </div>
+                )}
               </details>
             ))
+          ) : !searchResults ? (
+            <div className="flex items-center ml-3 mt-1 text-xs text-gray-500">
+              <Loader className="w-3 h-3 animate-spin mr-2" />
+              Searching...
+            </div>
+          ) : searchResults.results.length === 0 ? (
+            <div className="p-4 text-center text-gray-500 dark:text-gray-400 text-sm">
+              {searchResults.error ? `Search failed: ${searchResults.error}` : `No endpoints found matching "${searchQuery}"`}
+            </div>
+          ) : (
+            <ul className="space-y-1">
+              {searchResults.results.map(renderSearchResult)}
+            </ul>
           )}
         </nav>
       </aside>
@@ -338,6 +453,12 @@ const AutoDocerUI = () => {
                 👈 Select an endpoint from the sidebar to view its documentation
               </div>
             </div>
+          ) : !apiSpec?.paths[currentEndpoint.path]?.[currentEndpoint.method] ? (
+            // A search result whose controller document is still loading
+            <div className="bg-white dark:bg-gray-900 border border-gray-200 dark:border-gray-700 rounded-xl p-8 animate-pulse space-y-4">
+              <div className="h-8 bg-gray-200 dark:bg-gray-700 rounded w-1/2"></div>
+              <div className="h-4 bg-gray-100 dark:bg-gray-800 rounded"></div>
+            </div>
           ) : (
             <EndpointDetails
               apiSpec={apiSpec}
@@ -0,0 +1,116 @@
+package com.autodocer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reading and writing the compile-time endpoint index.
+ */
+class EndpointIndexTest {
+
+    private static EndpointIndex sample() {
+        EndpointIndex index = new EndpointIndex();
+        index.put("com.example.UserController", List.of(
+                new EndpointIndex.Handler("getUser", "GET", "com.example.UserDto", List.of(
+                        new EndpointIndex.Parameter("java.lang.Long", "PathVariable", true),
+                        new EndpointIndex.Parameter("java.lang.String", "RequestParam", false))),
+                new EndpointIndex.Handler("upload", "POST", "void", List.of(
+                        new EndpointIndex.Parameter("byte[]", "RequestBody", true),
+                        new EndpointIndex.Parameter("javax.servlet.http.HttpServletRequest", "Unknown", true)))));
+        index.put("com.example.AController", List.of());
+        return index;
+    }
+
+    private static String write(EndpointIndex index) throws IOException {
+        StringWriter out = new StringWriter();
+        index.write(out);
+        return out.toString();
+    }
+
+    @Test
+    void writesControllersSortedWithTabIndentedHandlers() throws IOException {
+        assertEquals("# AutoDocER endpoint index v1\n"
+                        + "com.example.AController\n"
+                        + "com.example.UserController\n"
+                        + "\tgetUser GET com.example.UserDto java.lang.Long@PathVariable java.lang.String@RequestParam?\n"
+                        + "\tupload POST void byte[]@RequestBody javax.servlet.http.HttpServletRequest\n",
+                write(sample()));
+    }
+
+    @Test
+    void readsBackWhatItWrote() throws IOException {
+        EndpointIndex read = EndpointIndex.read(new StringReader(write(sample())));
+        assertEquals(sample().controllers(), read.controllers());
+        EndpointIndex.Parameter optional = read.handlers("com.example.UserController").get(0).parameters().get(1);
+        assertEquals("RequestParam", optional.sourceType());
+        assertFalse(optional.required());
+        assertTrue(read.handlers("com.example.AController").isEmpty());
+    }
+
+    @Test
+    void rejectsHandlerBeforeAnyController() {
+        assertThrows(IllegalArgumentException.class,
+                () -> EndpointIndex.read(new StringReader("\tgetUser GET void\n")));
+    }
+
+    @Test
+    void rejectsTruncatedHandlerLine() {
+        assertThrows(IllegalArgumentException.class,
+                () -> EndpointIndex.read(new StringReader("com.example.UserController\n\tgetUser GET\n")));
+    }
+
+    @Test
+    void resolvesPrimitivesArraysAndClasses() throws ClassNotFoundException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        assertEquals(int.class, EndpointIndex.resolveType("int", classLoader));
+        assertEquals(long[][].class, EndpointIndex.resolveType("long[][]", classLoader));
+        assertEquals(String[].class, EndpointIndex.resolveType("java.lang.String[]", classLoader));
+        assertEquals(java.util.Map.Entry.class, EndpointIndex.resolveType("java.util.Map$Entry", classLoader));
+    }
+
+    @Test
+    void loadMergesEveryIndexOnTheClassPath() throws IOException {
+        Path first = Files.createTempDirectory("index-a");
+        Path second = Files.createTempDirectory("index-b");
+        writeIndex(first, "com.example.First\n\tlist GET java.util.List\n");
+        writeIndex(second, "com.example.Second\n\tcount GET int\n");
+        writeIndex(second.resolve("broken"), "\torphan GET void\n");
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{
+                first.toUri().toURL(), second.toUri().toURL(), second.resolve("broken").toUri().toURL()}, null)) {
+            EndpointIndex index = EndpointIndex.load(classLoader);
+            assertNotNull(index);
+            // The unreadable one is skipped
+            assertEquals(List.of("com.example.First", "com.example.Second"), List.copyOf(index.controllers().keySet()));
+            assertEquals("count", index.handlers("com.example.Second").get(0).methodName());
+        }
+    }
+
+    @Test
+    void loadWithoutIndexReturnsNull() throws IOException {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0], null)) {
+            assertNull(EndpointIndex.load(classLoader));
+        }
+    }
+
+    private static void writeIndex(Path root, String content) throws IOException {
+        Path file = root.resolve(EndpointIndex.LOCATION);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.autodocer;
+
+import com.autodocer.DTO.ControllerInfo;
+import com.autodocer.DTO.EndpointInfo;
+import com.autodocer.DTO.ParameterInfo;
+import com.autodocer.DTO.SearchResponse;
+import com.autodocer.DTO.SearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tokenizing, BM25 ranking, prefix matching and incremental updates of the search index.
+ */
+class SearchIndexTest {
+
+    private static EndpointInfo endpoint(String methodName, String httpMethod, String path, String description,
+                                         String... parameters) {
+        List<ParameterInfo> parameterInfos = Arrays.stream(parameters)
+                .map(name -> new ParameterInfo(name, "String", "RequestParam", true))
+                .toList();
+        return new EndpointInfo(methodName, httpMethod, path, parameterInfos, "String", null, description);
+    }
+
+    private static List<ControllerInfo> snapshot(String orderDescription) {
+        return List.of(
+                new ControllerInfo("com.example.UserController", "/users", List.of(
+                        endpoint("getUserById", "GET", "/users/{id}", "Looks up one account", "id"),
+                        endpoint("listUsers", "GET", "/users", "Pages through every account", "page"))),
+                new ControllerInfo("com.example.OrderController", "/orders", List.of(
+                        endpoint("createOrder", "POST", "/orders", orderDescription))));
+    }
+
+    private static List<String> paths(SearchResponse response) {
+        return response.results().stream().map(SearchResult::path).toList();
+    }
+
+    @Test
+    void tokenizeSplitsCamelCaseAndDropsStopWords() {
+        assertEquals(List.of("get", "user", "by", "id", "getuserbyid"), SearchIndex.tokenize("getUserById", true));
+        assertEquals(List.of("http", "server", "2", "users", "id"), SearchIndex.tokenize("HTTPServer2 of /users/{id}", false));
+    }
+
+    @Test
+    void pathAndMethodNameHitsOutrankDescriptionHits() {
+        SearchIndex index = new SearchIndex();
+        index.update(1, snapshot("Places an order for the user in the session"));
+
+        SearchResponse response = index.search("user", 10);
+
+        assertEquals(3, response.total());
+        assertEquals("/orders", response.results().get(2).path());
+        assertTrue(response.results().get(1).score() > response.results().get(2).score());
+    }
+
+    @Test
+    void wholeIdentifierMatches() {
+        SearchIndex index = new SearchIndex();
+        index.update(1, snapshot("Places an order"));
+
+        assertEquals(List.of("/users/{id}"), paths(index.search("getuserbyid", 10)));
+    }
+
+    @Test
+    void lastWordMatchesAsPrefix() {
+        SearchIndex index = new SearchIndex();
+        index.update(1, snapshot("Places an order"));
+
+        assertEquals(List.of("/orders"), paths(index.search("ord", 10)));
+        assertEquals(2, index.search("acc", 10).total());
+        // Only the last word is expanded
+        assertEquals(List.of("/users", "/users/{id}"), paths(index.search("ord users", 10)).stream().sorted().toList());
+    }
+
+    @Test
+    void limitKeepsTheTotal() {
+        SearchIndex index = new SearchIndex();
+        index.update(7, snapshot("Places an order"));
+
+        SearchResponse response = index.search("get", 1);
+
+        assertEquals(1, response.results().size());
+        assertEquals(2, response.total());
+        assertEquals(7, response.version());
+    }
+
+    @Test
+    void updateOnlyReindexesChangedEndpoints() {
+        SearchIndex index = new SearchIndex();
+        assertEquals(3, index.update(1, snapshot("Places an order")));
+        assertEquals(0, index.update(2, snapshot("Places an order")));
+        assertEquals(1, index.update(3, snapshot("Places a purchase order")));
+        assertEquals(List.of("/orders"), paths(index.search("purchase", 10)));
+
+        assertEquals(1, index.update(4, snapshot("Places an order").subList(0, 1)));
+        assertEquals(2, index.size());
+        assertEquals(0, index.search("order", 10).total());
+    }
+}
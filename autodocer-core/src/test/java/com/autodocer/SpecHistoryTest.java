@@ -0,0 +1,160 @@
+package com.autodocer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * JSON Patch diffs and the version history built from them. Patches are
+ * checked by applying them to the source and comparing with the target.
+ */
+class SpecHistoryTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String V1 = """
+            {"openapi":"3.0.0","paths":{"/users/{id}":{"get":{"summary":"One user",
+             "parameters":[{"name":"id"},{"name":"expand"}]}}},"tags":["users"]}""";
+    private static final String V2 = """
+            {"openapi":"3.0.0","paths":{"/users/{id}":{"get":{"summary":"Looks up one user",
+             "parameters":[{"name":"id"}]}},"/a~b":{"post":{}}},"tags":["users","orders"]}""";
+    private static final String V3 = """
+            {"openapi":"3.0.0","paths":{"/a~b":{"post":{"summary":"Tilde"}}},"tags":["orders"]}""";
+
+    @Test
+    void diffOfEqualDocumentsIsEmpty() throws IOException {
+        assertEquals(0, JsonPatch.diff(MAPPER.readTree(V1), MAPPER.readTree(V1)).size());
+    }
+
+    @Test
+    void diffEscapesPathKeys() throws IOException {
+        ArrayNode operations = JsonPatch.diff(MAPPER.readTree(V2), MAPPER.readTree(V3));
+
+        assertEquals("/paths/~1users~1{id}", operations.get(0).path("path").textValue());
+        assertEquals("/paths/~1a~0b/post/summary", operations.get(1).path("path").textValue());
+    }
+
+    @Test
+    void diffAppliedToSourceGivesTarget() throws IOException {
+        for (String[] pair : new String[][]{{V1, V2}, {V2, V3}, {V1, V3}, {V3, V1}}) {
+            JsonNode source = MAPPER.readTree(pair[0]);
+            JsonNode target = MAPPER.readTree(pair[1]);
+            assertEquals(target, apply(source, JsonPatch.diff(source, target)));
+        }
+    }
+
+    @Test
+    void patchSinceConcatenatesTheDeltas() throws IOException {
+        SpecHistory history = new SpecHistory(5);
+        history.record(1, "h1", bytes(V1));
+        history.record(2, "h2", bytes(V2));
+        history.record(3, "h3", bytes(V3));
+
+        assertEquals(MAPPER.readTree(bytes(V3)), apply(MAPPER.readTree(bytes(V1)), patch(history.patchSince(1, 3, null))));
+        assertEquals(MAPPER.readTree(bytes(V3)), apply(MAPPER.readTree(bytes(V2)), patch(history.patchSince(2, 3, null))));
+        assertEquals(0, patch(history.patchSince(3, 3, null)).size());
+    }
+
+    @Test
+    void patchSinceChecksTheHeldHash() {
+        SpecHistory history = new SpecHistory(5);
+        history.record(1, "h1", bytes(V1));
+        history.record(2, "h2", bytes(V2));
+
+        assertNotNull(history.patchSince(1, 2, "h1"::equals));
+        // Same version number, different document, e.g. from before a restart
+        assertNull(history.patchSince(1, 2, "other"::equals));
+        assertNull(history.patchSince(2, 2, "h1"::equals));
+    }
+
+    @Test
+    void patchSinceIsNullOutsideTheHistory() {
+        SpecHistory history = new SpecHistory(1);
+        history.record(1, "h1", bytes(V1));
+        history.record(2, "h2", bytes(V2));
+        history.record(3, "h3", bytes(V3));
+
+        // Version 1 fell out of the history
+        assertNull(history.patchSince(1, 3, null));
+        assertNotNull(history.patchSince(2, 3, null));
+        // Not the current version
+        assertNull(history.patchSince(2, 4, null));
+        assertNull(history.patchSince(4, 3, null));
+    }
+
+    @Test
+    void disabledHistoryRecordsNothing() {
+        SpecHistory history = new SpecHistory(0);
+        history.record(1, "h1", bytes(V1));
+
+        assertNull(history.patchSince(1, 1, null));
+    }
+
+    @Test
+    void patchSinceIsNullWhenNotSmallerThanTheDocument() {
+        SpecHistory history = new SpecHistory(5);
+        history.record(1, "h1", V1.getBytes(StandardCharsets.UTF_8));
+        history.record(2, "h2", V3.getBytes(StandardCharsets.UTF_8));
+
+        assertNull(history.patchSince(1, 2, null));
+    }
+
+    /**
+     * The document with a large unchanged section, so that patches between
+     * versions are smaller than the document itself.
+     */
+    private static byte[] bytes(String json) {
+        StringBuilder schemas = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            schemas.append(i == 0 ? "" : ",").append("\"Schema").append(i).append("\":{\"type\":\"object\"}");
+        }
+        String document = json.substring(0, json.length() - 1) + ",\"components\":{\"schemas\":{" + schemas + "}}}";
+        return document.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ArrayNode patch(byte[] serialized) throws IOException {
+        assertNotNull(serialized);
+        return (ArrayNode) MAPPER.readTree(serialized);
+    }
+
+    /**
+     * Applies "add", "remove" and "replace" operations, per RFC 6902.
+     */
+    private static JsonNode apply(JsonNode document, ArrayNode operations) {
+        JsonNode result = document.deepCopy();
+        for (JsonNode operation : operations) {
+            String path = operation.path("path").textValue();
+            String op = operation.path("op").textValue();
+            if (path.isEmpty()) {
+                result = operation.get("value");
+                continue;
+            }
+            int slash = path.lastIndexOf('/');
+            JsonNode parent = result.at(path.substring(0, slash));
+            String token = path.substring(slash + 1).replace("~1", "/").replace("~0", "~");
+            if (parent.isArray()) {
+                ArrayNode array = (ArrayNode) parent;
+                int index = Integer.parseInt(token);
+                switch (op) {
+                    case "add" -> array.insert(index, operation.get("value"));
+                    case "remove" -> array.remove(index);
+                    default -> array.set(index, operation.get("value"));
+                }
+            } else if ("remove".equals(op)) {
+                ((ObjectNode) parent).remove(token);
+            } else {
+                ((ObjectNode) parent).set(token, operation.get("value"));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,283 @@
+package com.autodocer.Plugin;
+
+import com.autodocer.AiDescription.PlaceholderAiDescriptionService;
+import com.autodocer.DTO.ArraySchemaInfo;
+import com.autodocer.DTO.ControllerInfo;
+import com.autodocer.DTO.EndpointInfo;
+import com.autodocer.DTO.FieldInfo;
+import com.autodocer.DTO.ParameterInfo;
+import com.autodocer.DTO.SchemaInfo;
+import com.autodocer.DocumentationParser;
+import com.autodocer.OpenApiGenerator;
+import com.autodocer.PrebuiltSpec;
+import com.autodocer.SerializedSpec;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Runs the same parsing the library does at startup over the compiled classes
+ * and packages the resulting OpenAPI document (plus its gzipped variant) with
+ * the application, so it can be served without scanning at runtime.
+ * <p>
+ * Regeneration is skipped when none of the controller, DTO or main class files
+ * the last document was built from have changed and no classes were added or
+ * removed.
+ */
+@Mojo(name = "generate",
+        defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.RUNTIME,
+        threadSafe = true)
+public class GenerateSpecMojo extends AbstractMojo {
+
+    private static final String STATE_FILE = "generate.state";
+    // Bump when the state format or the generated output changes shape
+    private static final String STATE_VERSION = "1";
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File classesDirectory;
+
+    @Parameter(defaultValue = "${project.build.directory}/autodocer", required = true)
+    private File stateDirectory;
+
+    @Parameter(property = "autodocer.pretty", defaultValue = "true")
+    private boolean pretty;
+
+    @Parameter(property = "autodocer.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Parameter(property = "autodocer.force", defaultValue = "false")
+    private boolean force;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("AutoDocER spec generation skipped");
+            return;
+        }
+        if (!classesDirectory.isDirectory()) {
+            getLog().info("No compiled classes in " + classesDirectory + ", nothing to document");
+            return;
+        }
+
+        Path classesRoot = classesDirectory.toPath();
+        Path jsonFile = classesRoot.resolve(PrebuiltSpec.LOCATION);
+        Path gzipFile = classesRoot.resolve(PrebuiltSpec.GZIP_LOCATION);
+        Path stateFile = stateDirectory.toPath().resolve(STATE_FILE);
+
+        List<String> classNames = listClassNames(classesRoot);
+        String classSetHash = sha256(String.join("\n", classNames).getBytes(StandardCharsets.UTF_8));
+
+        if (!force && Files.isRegularFile(jsonFile) && Files.isRegularFile(gzipFile)
+                && isUpToDate(stateFile, classesRoot, classSetHash)) {
+            getLog().info("AutoDocER spec is up to date, no controller or DTO class changed");
+            return;
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(classpathUrls(), getClass().getClassLoader())) {
+            List<Class<?>> controllers = new ArrayList<>();
+            Class<?> mainAppClass = null;
+            for (String className : classNames) {
+                Class<?> clazz = loadClass(classLoader, className);
+                if (clazz == null) {
+                    continue;
+                }
+                if (AnnotatedElementUtils.hasAnnotation(clazz, RestController.class)) {
+                    controllers.add(clazz);
+                } else if (mainAppClass == null && clazz.isAnnotationPresent(SpringBootApplication.class)) {
+                    mainAppClass = clazz;
+                }
+            }
+            controllers.sort(Comparator.comparing(Class::getName));
+            getLog().info("Generating AutoDocER spec for " + controllers.size() + " controllers");
+
+            DocumentationParser parser = new DocumentationParser(new PlaceholderAiDescriptionService());
+            DocumentationParser.ApiDocumentationResult result = parser.parseClasses(controllers, mainAppClass);
+            SerializedSpec spec = SerializedSpec.of(new OpenApiGenerator().generateBytes(result, pretty));
+
+            Files.createDirectories(jsonFile.getParent());
+            Files.write(jsonFile, spec.identity());
+            Files.write(gzipFile, spec.gzip());
+
+            Set<String> inputs = new TreeSet<>();
+            for (Class<?> controller : controllers) {
+                inputs.add(controller.getName());
+            }
+            if (mainAppClass != null) {
+                inputs.add(mainAppClass.getName());
+            }
+            collectSchemaClasses(result, inputs);
+            writeState(stateFile, classesRoot, classSetHash, inputs);
+
+            getLog().info("Wrote " + PrebuiltSpec.LOCATION + " (" + spec.identity().length + " bytes, "
+                    + spec.gzip().length + " gzipped, ETag " + spec.etag(null) + ")");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to generate the AutoDocER spec", e);
+        }
+    }
+
+    /**
+     * The state is up to date when the set of classes is unchanged and every
+     * recorded input still has the same content.
+     */
+    private boolean isUpToDate(Path stateFile, Path classesRoot, String classSetHash) {
+        if (!Files.isRegularFile(stateFile)) {
+            return false;
+        }
+        try {
+            List<String> lines = Files.readAllLines(stateFile, StandardCharsets.UTF_8);
+            if (lines.size() < 2
+                    || !lines.get(0).equals("version " + STATE_VERSION + " pretty " + pretty)
+                    || !lines.get(1).equals("classes " + classSetHash)) {
+                return false;
+            }
+            for (String line : lines.subList(2, lines.size())) {
+                int split = line.indexOf(' ');
+                if (split < 0) {
+                    return false;
+                }
+                String className = line.substring(0, split);
+                if (!line.substring(split + 1).equals(fingerprint(classesRoot, className))) {
+                    getLog().debug("AutoDocER input changed: " + className);
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeState(Path stateFile, Path classesRoot, String classSetHash, Set<String> inputs)
+            throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("version " + STATE_VERSION + " pretty " + pretty);
+        lines.add("classes " + classSetHash);
+        for (String className : inputs) {
+            lines.add(className + " " + fingerprint(classesRoot, className));
+        }
+        Files.createDirectories(stateFile.getParent());
+        Files.write(stateFile, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Content hash of a class file in the output directory. Content rather
+     * than modification time, as the compiler rewrites every class of a module
+     * when any source in it changes. Classes that come from dependencies have
+     * no file there and are recorded as "external"; changes to them are not
+     * tracked, use -Dautodocer.force.
+     */
+    private static String fingerprint(Path classesRoot, String className) throws IOException {
+        Path classFile = classesRoot.resolve(className.replace('.', '/') + ".class");
+        if (!Files.isRegularFile(classFile)) {
+            return "external";
+        }
+        return sha256(Files.readAllBytes(classFile));
+    }
+
+    /**
+     * Adds the classes behind every object schema in the result, following
+     * fields and array items.
+     */
+    private static void collectSchemaClasses(DocumentationParser.ApiDocumentationResult result, Set<String> classNames) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ControllerInfo controller : result.controllers()) {
+            for (EndpointInfo endpoint : controller.endpoints()) {
+                for (ParameterInfo parameter : endpoint.parameters()) {
+                    collectSchemaClasses(parameter.type(), classNames, visited);
+                }
+                collectSchemaClasses(endpoint.responseType(), classNames, visited);
+            }
+        }
+    }
+
+    private static void collectSchemaClasses(Object schema, Set<String> classNames, Set<Object> visited) {
+        if (schema instanceof ArraySchemaInfo arraySchema) {
+            collectSchemaClasses(arraySchema.itemType(), classNames, visited);
+        } else if (schema instanceof SchemaInfo schemaInfo && visited.add(schemaInfo)) {
+            classNames.add(schemaInfo.qualifiedName());
+            for (FieldInfo field : schemaInfo.fields()) {
+                collectSchemaClasses(field.type(), classNames, visited);
+            }
+        }
+    }
+
+    private static List<String> listClassNames(Path classesRoot) throws MojoExecutionException {
+        try (Stream<Path> files = Files.walk(classesRoot)) {
+            return files
+                    .filter(file -> file.toString().endsWith(".class"))
+                    .map(file -> classesRoot.relativize(file).toString())
+                    .map(relative -> relative.substring(0, relative.length() - ".class".length())
+                            .replace(File.separatorChar, '.'))
+                    .filter(className -> !className.endsWith("module-info") && !className.endsWith("package-info"))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to list classes in " + classesRoot, e);
+        }
+    }
+
+    private URL[] classpathUrls() throws MojoExecutionException {
+        try {
+            // Keep Maven's order, but make sure the output directory is first
+            List<URL> urls = new ArrayList<>();
+            urls.add(classesDirectory.toURI().toURL());
+            for (String element : project.getRuntimeClasspathElements()) {
+                if (!new File(element).equals(classesDirectory)) {
+                    urls.add(new File(element).toURI().toURL());
+                }
+            }
+            return urls.toArray(new URL[0]);
+        } catch (MalformedURLException | DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Failed to resolve the runtime classpath", e);
+        }
+    }
+
+    private Class<?> loadClass(ClassLoader classLoader, String className) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            getLog().debug("Skipping " + className + ": " + e);
+            return null;
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}